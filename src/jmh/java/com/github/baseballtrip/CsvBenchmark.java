@@ -0,0 +1,62 @@
+package com.github.baseballtrip;
+
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Aggregates and formats synthetic boxscore sets, and prints the resulting cells. Players are
+ * spread so that each appears in about ten games.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CsvBenchmark {
+  @Param({"1000", "10000", "100000"})
+  public int boxscoreCount;
+
+  private ImmutableList<Boxscore> boxscores;
+
+  private String[][] cells;
+
+  private final BaseballCsvFormatter formatter = new BaseballCsvFormatter();
+
+  private final Writer output = Writer.nullWriter();
+
+  @Setup
+  public void setUp() {
+    boxscores = SyntheticBoxscores.generate(boxscoreCount, boxscoreCount * 4);
+    cells = formatter.toCsvCells(boxscores);
+  }
+
+  @Benchmark
+  public String[][] toCsvCells() {
+    return formatter.toCsvCells(boxscores);
+  }
+
+  @Benchmark
+  public String[][] toCsvCellsParallel() {
+    return formatter.toCsvCells(boxscores, ForkJoinPool.commonPool());
+  }
+
+  @Benchmark
+  public void printCsv() throws IOException {
+    new CsvPrinter(output).printCsv(cells);
+  }
+}
@@ -0,0 +1,58 @@
+package com.github.baseballtrip;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableTable;
+import com.google.common.collect.Lists;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Sums and derives stats over one player's synthetic multi-season history. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlayerStatBenchmark {
+  @Param({"10", "162", "1620"})
+  public int games;
+
+  private ImmutableList<PlayerStat> history;
+
+  private List<ImmutableTable<String, String, Float>> historyTables;
+
+  private ImmutableTable<String, String, Float> sums;
+
+  @Setup
+  public void setUp() {
+    history = SyntheticBoxscores.playerHistory(games);
+    historyTables = ImmutableList.copyOf(Lists.transform(history, PlayerStat::stats));
+    sums = PlayerStat.sumStats(historyTables);
+  }
+
+  @Benchmark
+  public ImmutableTable<String, String, Float> sumStats() {
+    return PlayerStat.sumStats(historyTables);
+  }
+
+  @Benchmark
+  public ImmutableTable<String, String, Float> addDerivedStats() {
+    return PlayerStat.addDerivedStats(sums);
+  }
+
+  @Benchmark
+  public ImmutableTable<String, String, Float> sumAndAddDerived() {
+    return PlayerStat.sumAndAddDerived(history);
+  }
+}
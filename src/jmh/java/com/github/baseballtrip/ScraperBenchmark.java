@@ -0,0 +1,62 @@
+package com.github.baseballtrip;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.io.Resources;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parses the saved fixture pages, which a fetcher streams from the classpath the way a cached page
+ * is streamed from disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScraperBenchmark {
+  @Param({"CHA200908020.shtml", "BOS201805020.shtml"})
+  public String fixture;
+
+  private URI uri;
+
+  private BaseballReferenceScraper scraper;
+
+  @Setup
+  public void setUp() throws IOException {
+    uri = SyntheticBoxscores.fixtureUri(fixture);
+    scraper =
+        new BaseballReferenceScraper(
+            new HttpFetcher() {
+              @Override
+              public String fetch(URI uri) throws IOException {
+                return Resources.toString(uri.toURL(), UTF_8);
+              }
+
+              @Override
+              public InputStream fetchStream(URI uri) throws IOException {
+                return uri.toURL().openStream();
+              }
+            });
+  }
+
+  @Benchmark
+  public Boxscore parseBoxscore() throws IOException {
+    return scraper.parseBoxscore(uri);
+  }
+}
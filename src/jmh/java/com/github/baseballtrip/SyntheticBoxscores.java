@@ -0,0 +1,95 @@
+package com.github.baseballtrip;
+
+import static com.google.common.io.Resources.getResource;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Resources;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.time.LocalDate;
+
+/** Builds large boxscore sets for benchmarks out of the saved fixture pages. */
+final class SyntheticBoxscores {
+  static final ImmutableList<String> FIXTURES =
+      ImmutableList.of("CHA200908020.shtml", "BOS201805020.shtml");
+
+  private static final int SEASONS = 20;
+
+  private SyntheticBoxscores() {}
+
+  static URI fixtureUri(String name) {
+    try {
+      return getResource(name).toURI();
+    } catch (URISyntaxException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+
+  /** Serves the fixture pages from the classpath, without any network or rate limiting. */
+  static HttpFetcher resourceFetcher() {
+    return uri -> Resources.toString(uri.toURL(), UTF_8);
+  }
+
+  static ImmutableList<Boxscore> parseFixtures() {
+    BaseballReferenceScraper scraper = new BaseballReferenceScraper(resourceFetcher());
+    ImmutableList.Builder<Boxscore> result = ImmutableList.builder();
+
+    for (String fixture : FIXTURES) {
+      try {
+        result.add(scraper.parseBoxscore(fixtureUri(fixture)));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    return result.build();
+  }
+
+  /**
+   * Returns {@code count} copies of the fixture boxscores, spread over {@code players} distinct
+   * player IDs and {@value #SEASONS} seasons, so that aggregation sees a realistic mix of repeat
+   * and new players.
+   */
+  static ImmutableList<Boxscore> generate(int count, int players) {
+    ImmutableList<Boxscore> fixtures = parseFixtures();
+    ImmutableList.Builder<Boxscore> result = ImmutableList.builderWithExpectedSize(count);
+    int nextPlayer = 0;
+
+    for (int i = 0; i < count; i++) {
+      Boxscore fixture = fixtures.get(i % fixtures.size());
+      Matchup matchup =
+          new Matchup(
+              LocalDate.of(2000 + i % SEASONS, 4, 1).plusDays(i % 180),
+              fixture.matchup.away,
+              fixture.matchup.home);
+      ImmutableList.Builder<PlayerStat> stats = ImmutableList.builder();
+
+      for (PlayerStat stat : fixture.stats) {
+        int player = nextPlayer++ % players;
+        stats.add(new PlayerStat("player" + player, "Player " + player, stat.statLine));
+      }
+
+      result.add(new Boxscore(matchup, stats.build()));
+    }
+
+    return result.build();
+  }
+
+  /** One player's lines over {@code games} games, cycling through every line of the fixtures. */
+  static ImmutableList<PlayerStat> playerHistory(int games) {
+    ImmutableList<PlayerStat> lines =
+        parseFixtures().stream()
+            .flatMap(boxscore -> boxscore.stats.stream())
+            .collect(ImmutableList.toImmutableList());
+    ImmutableList.Builder<PlayerStat> result = ImmutableList.builderWithExpectedSize(games);
+
+    for (int i = 0; i < games; i++) {
+      result.add(lines.get(i % lines.size()));
+    }
+
+    return result.build();
+  }
+}
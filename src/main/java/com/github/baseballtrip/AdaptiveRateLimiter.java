@@ -0,0 +1,116 @@
+package com.github.baseballtrip;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.util.concurrent.RateLimiter;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate limits requests separately for each host, backing off when a host says it's overloaded.
+ *
+ * <p>Each host starts at the configured ceiling. A throttled response halves the host's rate and
+ * pauses it for the longer of its {@code Retry-After} and an exponential backoff with jitter, so
+ * concurrent fetchers don't all retry at once. Each healthy response then adds back a tenth of the
+ * ceiling, until the host is at the ceiling again.
+ */
+class AdaptiveRateLimiter {
+  private static final Duration BASE_BACKOFF = Duration.ofSeconds(5);
+
+  /** The rate never drops below this fraction of the ceiling. */
+  private static final double MIN_RATE_FRACTION = 1 / 16d;
+
+  private static final double RECOVERY_FRACTION = 1 / 10d;
+
+  private final double maxPermitsPerSecond;
+
+  private final Duration maxBackoff;
+
+  private final Random random;
+
+  private final ConcurrentHashMap<String, HostBudget> hosts = new ConcurrentHashMap<>();
+
+  public AdaptiveRateLimiter(double maxPermitsPerSecond, Duration maxBackoff, Random random) {
+    checkArgument(maxPermitsPerSecond > 0, "rate must be positive: %s", maxPermitsPerSecond);
+    this.maxPermitsPerSecond = maxPermitsPerSecond;
+    this.maxBackoff = maxBackoff;
+    this.random = random;
+  }
+
+  /**
+   * Waits until a request to {@code host} is allowed, including any pause after it was throttled.
+   * Returns the time spent waiting, in seconds.
+   */
+  public double acquire(String host) throws InterruptedException {
+    HostBudget budget = budget(host);
+    long pausedNanos = budget.pausedUntilNanos - System.nanoTime();
+    double waitedSeconds = 0;
+
+    if (pausedNanos > 0) {
+      TimeUnit.NANOSECONDS.sleep(pausedNanos);
+      waitedSeconds = pausedNanos / 1e9;
+    }
+
+    return waitedSeconds + budget.rateLimiter.acquire();
+  }
+
+  /** Records a healthy response from {@code host}, moving its rate back towards the ceiling. */
+  public void onSuccess(String host) {
+    budget(host).recover();
+  }
+
+  /**
+   * Records that {@code host} throttled a request or failed with a server error. Returns how long
+   * the host is now paused for.
+   */
+  public Duration onThrottled(String host, Optional<Duration> retryAfter) {
+    return budget(host).throttle(retryAfter);
+  }
+
+  /** The current rate for {@code host}, in requests per second. */
+  public double rate(String host) {
+    return budget(host).rateLimiter.getRate();
+  }
+
+  private HostBudget budget(String host) {
+    return hosts.computeIfAbsent(host, ignored -> new HostBudget());
+  }
+
+  private class HostBudget {
+    private final RateLimiter rateLimiter = RateLimiter.create(maxPermitsPerSecond);
+
+    private volatile long pausedUntilNanos = System.nanoTime();
+
+    private int consecutiveThrottles;
+
+    synchronized void recover() {
+      consecutiveThrottles = 0;
+      double rate = rateLimiter.getRate();
+
+      if (rate < maxPermitsPerSecond) {
+        rateLimiter.setRate(
+            Math.min(maxPermitsPerSecond, rate + maxPermitsPerSecond * RECOVERY_FRACTION));
+      }
+    }
+
+    synchronized Duration throttle(Optional<Duration> retryAfter) {
+      consecutiveThrottles++;
+      rateLimiter.setRate(
+          Math.max(maxPermitsPerSecond * MIN_RATE_FRACTION, rateLimiter.getRate() / 2));
+
+      // a random point in the upper half of the exponential backoff
+      long backoffNanos =
+          Math.min(
+              maxBackoff.toNanos(),
+              BASE_BACKOFF.toNanos() << Math.min(consecutiveThrottles - 1, 20));
+      backoffNanos = backoffNanos / 2 + (long) (random.nextDouble() * (backoffNanos / 2));
+
+      long pauseNanos = Math.max(backoffNanos, retryAfter.map(Duration::toNanos).orElse(0L));
+      pausedUntilNanos = Math.max(pausedUntilNanos, System.nanoTime() + pauseNanos);
+      return Duration.ofNanos(pauseNanos);
+    }
+  }
+}
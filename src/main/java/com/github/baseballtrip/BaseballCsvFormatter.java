@@ -1,22 +1,18 @@
 package com.github.baseballtrip;
 
-import static com.github.baseballtrip.PlayerStat.addDerivedStats;
-import static com.github.baseballtrip.PlayerStat.sumStats;
-import static com.google.common.base.Preconditions.checkState;
-import static com.google.common.collect.ImmutableListMultimap.toImmutableListMultimap;
-import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toList;
 
-import com.google.common.base.Function;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.ImmutableTable;
-import com.google.common.collect.Lists;
-import java.text.DecimalFormat;
-import java.util.IdentityHashMap;
+import com.google.common.collect.Iterators;
+import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 public class BaseballCsvFormatter {
   private static final ImmutableSet<String> BATTING_HEADERS =
@@ -29,84 +25,175 @@ public class BaseballCsvFormatter {
   private final ImmutableMap<String, ImmutableSet<String>> headerGroups =
       ImmutableMap.of("BATTING", BATTING_HEADERS, "PITCHING", PITCHING_HEADERS);
 
-  private final ImmutableList<String> headers =
-      ImmutableList.<String>builder()
-          .add("player")
-          .addAll(BATTING_HEADERS)
-          .addAll(PITCHING_HEADERS)
-          .add("seasons")
-          .build();
+  /** Rows formatted in parallel each use their thread's own formatter and cell buffer. */
+  private static final ThreadLocal<BaseballCsvFormatter> ROW_FORMATTERS =
+      ThreadLocal.withInitial(BaseballCsvFormatter::new);
 
-  private final DecimalFormat statFormatter = new DecimalFormat(",##0.#");
-  private final DecimalFormat averageFormatter = new DecimalFormat(".000");
+  /**
+   * Rows formatted per batch, so that rows can still be printed as they're produced, and so that
+   * formatting is timed once per batch rather than once per row.
+   */
+  private static final int BATCH_ROWS = 4096;
 
-  private final DecimalFormat eraFormatter = new DecimalFormat("0.00");
+  private final ImmutableList<String> statHeaders =
+      ImmutableList.<String>builder().addAll(BATTING_HEADERS).addAll(PITCHING_HEADERS).build();
 
-  private final ImmutableMap<String, Function<Float, String>> formatters =
-      ImmutableMap.<String, Function<Float, String>>builder()
-          .put("IP", BaseballCsvFormatter::formatInnings)
-          .put("AVG", averageFormatter::format)
-          .put("SLG", averageFormatter::format)
-          .put("ERA", eraFormatter::format)
-          .build();
+  private final DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance();
 
-  public String[][] toCsvCells(List<Boxscore> boxscores) {
-    ImmutableListMultimap<String, PlayerStat> byPlayerId =
-        boxscores.stream()
-            .flatMap(b -> b.stats.stream())
-            .collect(toImmutableListMultimap(p -> p.playerId, p -> p));
+  /** {@link StatSchema} slot of each stat column in header order, or -1 if it has none. */
+  private final int[] statIndexes = statIndexes(headerGroups);
+
+  /** How each stat column is written, in header order. */
+  private final CellFormat[] cellFormats =
+      statHeaders.stream().map(CellFormat::forHeader).toArray(CellFormat[]::new);
+
+  /** Reused for every cell, so only the finished cell is allocated. */
+  private final StringBuilder cell = new StringBuilder();
 
-    IdentityHashMap<PlayerStat, Matchup> matchupsByStat = new IdentityHashMap<>();
+  private static int[] statIndexes(ImmutableMap<String, ImmutableSet<String>> headerGroups) {
+    return headerGroups.entrySet().stream()
+        .flatMap(e -> e.getValue().stream().map(header -> StatSchema.index(e.getKey(), header)))
+        .mapToInt(Integer::intValue)
+        .toArray();
+  }
+
+  public String[][] toCsvCells(List<Boxscore> boxscores) {
+    RollupAggregator aggregator = new RollupAggregator();
 
     for (Boxscore boxscore : boxscores) {
-      for (PlayerStat stat : boxscore.stats) {
-        matchupsByStat.put(stat, boxscore.matchup);
-      }
+      aggregator.add(boxscore);
     }
 
-    String[][] result = new String[byPlayerId.keySet().size() + 1][];
+    return toCsvCells(aggregator);
+  }
+
+  /**
+   * Like {@link #toCsvCells(List)}, but totals and formats on {@code pool}. The cells are identical
+   * to the sequential ones.
+   */
+  public String[][] toCsvCells(List<Boxscore> boxscores, ForkJoinPool pool) {
+    RollupAggregator aggregator = new RollupAggregator();
+    aggregator.addAll(boxscores, pool);
+    return toCsvCells(Rollup.PLAYER, aggregator, pool);
+  }
+
+  /** Formats the player totals aggregated so far. May be called at any point during a run. */
+  public String[][] toCsvCells(RollupAggregator aggregator) {
+    return toCsvCells(Rollup.PLAYER, aggregator);
+  }
+
+  public String[][] toCsvCells(Rollup rollup, RollupAggregator aggregator) {
+    return toCsvCells(aggregator.groups(rollup), toCsvRows(rollup, aggregator));
+  }
+
+  public String[][] toCsvCells(Rollup rollup, RollupAggregator aggregator, ForkJoinPool pool) {
+    return toCsvCells(aggregator.groups(rollup), toCsvRows(rollup, aggregator, pool));
+  }
+
+  private static String[][] toCsvCells(Collection<GroupTotals> groups, Iterator<String[]> rows) {
+    String[][] result = new String[groups.size() + 1][];
     int row = 0;
-    result[row++] = headers.toArray(new String[0]);
-
-    for (String playerId : byPlayerId.keySet()) {
-      List<PlayerStat> statsForPlayer = byPlayerId.get(playerId);
-      ImmutableTable<String, String, Float> sums =
-          addDerivedStats(sumStats(Lists.transform(statsForPlayer, p -> p.stats)));
-
-      String[] formattedStatSums = new String[headers.size()];
-      int column = 0;
-      formattedStatSums[column++] = statsForPlayer.get(0).playerName;
-
-      for (Map.Entry<String, ImmutableSet<String>> e : headerGroups.entrySet()) {
-        for (String header : e.getValue()) {
-          Float value = sums.row(e.getKey()).get(header);
-          String formattedValue =
-              value == null
-                  ? ""
-                  : formatters.getOrDefault(header, statFormatter::format).apply(value);
-          formattedStatSums[column++] = formattedValue;
-        }
+
+    for (Iterator<String[]> it = rows; it.hasNext(); ) {
+      result[row++] = it.next();
+    }
+
+    return result;
+  }
+
+  public Iterator<String[]> toCsvRows(RollupAggregator aggregator) {
+    return toCsvRows(Rollup.PLAYER, aggregator);
+  }
+
+  /**
+   * Lazily formats one rollup's totals aggregated so far, starting with the header row. Rows are
+   * formatted a batch at a time as they're requested, so they can be written out as they're
+   * produced. The aggregator must not be updated while the rows are being read.
+   */
+  public Iterator<String[]> toCsvRows(Rollup rollup, RollupAggregator aggregator) {
+    Iterator<List<GroupTotals>> batches =
+        Iterators.partition(aggregator.groups(rollup).iterator(), BATCH_ROWS);
+    return Iterators.concat(
+        Iterators.singletonIterator(headerRow(rollup)),
+        Iterators.concat(Iterators.transform(batches, this::formatRows)));
+  }
+
+  /**
+   * Like {@link #toCsvRows(Rollup, RollupAggregator)}, but formats batches of rows in parallel on
+   * {@code pool}. Rows come out in the same order, with the same cells.
+   */
+  public Iterator<String[]> toCsvRows(
+      Rollup rollup, RollupAggregator aggregator, ForkJoinPool pool) {
+    Iterator<List<GroupTotals>> batches =
+        Iterators.partition(aggregator.groups(rollup).iterator(), BATCH_ROWS);
+    return Iterators.concat(
+        Iterators.singletonIterator(headerRow(rollup)),
+        Iterators.concat(Iterators.transform(batches, batch -> formatRows(batch, pool))));
+  }
+
+  private Iterator<String[]> formatRows(List<GroupTotals> groups) {
+    try (Metrics.StageTimer timer = Metrics.start(Metrics.Stage.FORMAT)) {
+      ArrayList<String[]> rows = new ArrayList<>(groups.size());
+
+      for (GroupTotals group : groups) {
+        rows.add(formatRow(group));
       }
 
+      return rows.iterator();
+    }
+  }
+
+  private static Iterator<String[]> formatRows(List<GroupTotals> groups, ForkJoinPool pool) {
+    try (Metrics.StageTimer timer = Metrics.start(Metrics.Stage.FORMAT)) {
+      return pool.invoke(
+              ForkJoinTask.adapt(
+                  () ->
+                      groups.parallelStream()
+                          .map(group -> ROW_FORMATTERS.get().formatRow(group))
+                          .collect(toList())))
+          .iterator();
+    }
+  }
+
+  String[] headerRow(Rollup rollup) {
+    return ImmutableList.<String>builder()
+        .addAll(rollup.labelHeaders)
+        .addAll(statHeaders)
+        .add("seasons")
+        .build()
+        .toArray(new String[0]);
+  }
+
+  /** Formats one group's row. Callers time formatting, a batch of rows at a time. */
+  String[] formatRow(GroupTotals group) {
+    StatLine sums = group.sumsWithDerivedStats();
+
+    String[] formattedStatSums = new String[group.labels.size() + statHeaders.size() + 1];
+    int column = 0;
+
+    for (String label : group.labels) {
+      formattedStatSums[column++] = label;
+    }
+
+    for (int i = 0; i < statIndexes.length; i++) {
+      int index = statIndexes[i];
       formattedStatSums[column++] =
-          statsForPlayer.stream()
-              .map(p -> matchupsByStat.get(p).date.getYear())
-              .distinct()
-              .sorted()
-              .map(Object::toString)
-              .collect(joining(", "));
-
-      result[row++] = formattedStatSums;
+          index >= 0 && sums.has(index) ? formatCell(cellFormats[i], sums.get(index)) : "";
     }
 
-    return result;
+    cell.setLength(0);
+
+    for (int season : group.seasons()) {
+      cell.append(cell.length() > 0 ? ", " : "").append(season);
+    }
+
+    formattedStatSums[column++] = cell.toString();
+    return formattedStatSums;
   }
 
-  private static String formatInnings(Float value) {
-    int intPart = (int) value.floatValue();
-    float fracPart = value - intPart;
-    int fracOuts = Math.round(fracPart * 3);
-    checkState(fracOuts < 3, "Invalid innings value: %s", value);
-    return String.format("%d.%d", intPart, fracOuts);
+  private String formatCell(CellFormat format, float value) {
+    cell.setLength(0);
+    format.append(value, symbols, cell);
+    return cell.toString();
   }
 }
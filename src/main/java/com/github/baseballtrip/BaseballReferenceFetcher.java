@@ -1,27 +1,61 @@
 package com.github.baseballtrip;
 
 import static com.google.common.io.Resources.getResource;
+import static java.net.HttpURLConnection.HTTP_INTERNAL_ERROR;
+import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.stream.Collectors.toMap;
 
-import com.google.common.util.concurrent.RateLimiter;
+import com.github.baseballtrip.Metrics.Stage;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URL;
 import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.time.Clock;
 import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Properties;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 class BaseballReferenceFetcher implements HttpFetcher {
+  /** Hears about each request the site throttled or failed, before it's retried. */
+  interface RetryListener {
+    RetryListener NONE = (uri, status, pause) -> {};
+
+    /** Requests to {@code uri}'s host are paused for {@code pause} before the next attempt. */
+    void retrying(URI uri, int status, Duration pause);
+  }
+
   private final HttpClient client;
 
-  private final RateLimiter rateLimiter;
+  private final AdaptiveRateLimiter rateLimiter;
+
+  private final FetchBudget budget;
+
+  private final RetryListener retryListener;
 
   /** https://www.sports-reference.com/bot-traffic.html */
-  private static final int MAX_REQUESTS_PER_MINUTE = 20;
+  static final int MAX_REQUESTS_PER_MINUTE = 20;
+
+  private static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+  /** Attempts per request when the site throttles us or fails with a server error. */
+  private static final int MAX_ATTEMPTS = 4;
+
+  /** Caps the exponential backoff. A longer {@code Retry-After} is still honored. */
+  private static final Duration MAX_BACKOFF = Duration.ofMinutes(10);
 
   private final Duration httpTimeout;
 
@@ -43,32 +77,174 @@ class BaseballReferenceFetcher implements HttpFetcher {
   }
 
   public BaseballReferenceFetcher(Duration httpTimeout) {
+    this(httpTimeout, MAX_REQUESTS_PER_MINUTE, FetchBudget.UNLIMITED, RetryListener.NONE);
+  }
+
+  /**
+   * Requests to each host are kept under {@code maxRequestsPerMinute}, and slowed down further
+   * while that host is throttling us. Every request also draws on {@code budget}, which may be
+   * shared with other fetchers, and throttling pauses the whole budget. Requests that are retried
+   * are reported to {@code retryListener}.
+   */
+  public BaseballReferenceFetcher(
+      Duration httpTimeout,
+      double maxRequestsPerMinute,
+      FetchBudget budget,
+      RetryListener retryListener) {
     this.client =
         HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
             .followRedirects(HttpClient.Redirect.ALWAYS)
             .connectTimeout(httpTimeout)
             .build();
     this.httpTimeout = httpTimeout;
-    this.rateLimiter = RateLimiter.create(MAX_REQUESTS_PER_MINUTE / 60.0d);
+    this.budget = budget;
+    this.retryListener = retryListener;
+    this.rateLimiter =
+        new AdaptiveRateLimiter(maxRequestsPerMinute / 60.0d, MAX_BACKOFF, new Random());
   }
 
   @Override
   public String fetch(URI uri) throws IOException {
-    rateLimiter.acquire();
+    try (InputStream page = fetchStream(uri)) {
+      return new String(page.readAllBytes(), UTF_8);
+    }
+  }
+
+  @Override
+  public InputStream fetchStream(URI uri) throws IOException {
+    return fetchIfModified(uri, PageValidators.NONE)
+        .orElseThrow(() -> new IOException(uri + " was not modified, but no validators were sent"))
+        .body;
+  }
+
+  /**
+   * Only the compressed body is held in memory. It's decompressed as the caller reads it, which
+   * for the scraper happens on a parse thread rather than a fetch thread. A conditional request
+   * still counts against the rate limit, but a 304 costs the site almost nothing to serve.
+   */
+  @Override
+  public Optional<FetchedPage> fetchIfModified(URI uri, PageValidators validators)
+      throws IOException {
+    String host = uri.getHost();
+
     try {
-      return client.send(buildRequest(uri), HttpResponse.BodyHandlers.ofString()).body();
+      for (int attempt = 1; ; attempt++) {
+        double waitedSeconds = rateLimiter.acquire(host) + budget.acquire();
+        Metrics.record(Stage.RATE_LIMIT_WAIT, (long) (waitedSeconds * 1_000_000_000), 0);
+        HttpResponse<byte[]> response;
+
+        try (Metrics.StageTimer timer = Metrics.start(Stage.HTTP)) {
+          response =
+              client.send(buildRequest(uri, validators), HttpResponse.BodyHandlers.ofByteArray());
+          timer.addBytes(response.body().length);
+        }
+
+        int status = response.statusCode();
+
+        if (status == HTTP_TOO_MANY_REQUESTS || status >= HTTP_INTERNAL_ERROR) {
+          Optional<Duration> retryAfter =
+              response
+                  .headers()
+                  .firstValue("Retry-After")
+                  .flatMap(value -> parseRetryAfter(value, Clock.systemUTC()));
+          Duration pause = rateLimiter.onThrottled(host, retryAfter);
+          budget.pause(pause);
+
+          if (attempt == MAX_ATTEMPTS) {
+            throw new IOException(
+                String.format("HTTP %d from %s after %d attempts", status, uri, attempt));
+          }
+
+          retryListener.retrying(uri, status, pause);
+          continue;
+        }
+
+        rateLimiter.onSuccess(host);
+
+        if (status == HTTP_NOT_MODIFIED) {
+          return Optional.empty();
+        }
+
+        if (status / 100 != 2) {
+          throw new IOException(String.format("HTTP %d from %s", status, uri));
+        }
+
+        HttpHeaders headers = response.headers();
+        InputStream body =
+            decode(headers.firstValue("Content-Encoding").orElse(""), response.body());
+        return Optional.of(
+            new FetchedPage(
+                body,
+                new PageValidators(
+                    headers.firstValue("ETag").orElse(null),
+                    headers.firstValue("Last-Modified").orElse(null))));
+      }
     } catch (InterruptedException e) {
       throw new IOException(e);
     }
   }
 
-  private HttpRequest buildRequest(URI uri) {
+  /** {@code Retry-After} is either a number of seconds or an HTTP date. */
+  static Optional<Duration> parseRetryAfter(String value, Clock clock) {
+    String trimmed = value.trim();
+
+    try {
+      if (!trimmed.isEmpty() && trimmed.chars().allMatch(Character::isDigit)) {
+        return Optional.of(Duration.ofSeconds(Long.parseLong(trimmed)));
+      }
+
+      ZonedDateTime date = ZonedDateTime.parse(trimmed, DateTimeFormatter.RFC_1123_DATE_TIME);
+      Duration result = Duration.between(clock.instant(), date.toInstant());
+      return Optional.of(result.isNegative() ? Duration.ZERO : result);
+    } catch (NumberFormatException | DateTimeParseException e) {
+      return Optional.empty();
+    }
+  }
+
+  /** HttpClient doesn't decompress responses itself. */
+  static InputStream decode(String contentEncoding, byte[] body) throws IOException {
+    InputStream input = new ByteArrayInputStream(body);
+
+    switch (contentEncoding.trim().toLowerCase()) {
+      case "":
+      case "identity":
+        return input;
+
+      case "gzip":
+      case "x-gzip":
+        return new GZIPInputStream(input, 1 << 16);
+
+      case "deflate":
+        // should be zlib-wrapped, but some servers send a raw deflate stream
+        return new InflaterInputStream(input, new Inflater(!isZlibWrapped(body)), 1 << 16);
+
+      default:
+        throw new IOException("Unsupported Content-Encoding: " + contentEncoding);
+    }
+  }
+
+  private static boolean isZlibWrapped(byte[] body) {
+    return body.length >= 2
+        && (body[0] & 0x0f) == 8
+        && (((body[0] & 0xff) << 8) | (body[1] & 0xff)) % 31 == 0;
+  }
+
+  private HttpRequest buildRequest(URI uri, PageValidators validators) {
     HttpRequest.Builder result = HttpRequest.newBuilder();
 
     for (Map.Entry<String, String> e : httpHeaders.entrySet()) {
       result.header(e.getKey(), e.getValue());
     }
 
+    if (validators.etag != null) {
+      result.header("If-None-Match", validators.etag);
+    }
+
+    if (validators.lastModified != null) {
+      result.header("If-Modified-Since", validators.lastModified);
+    }
+
     return result.uri(uri).timeout(httpTimeout).GET().build();
   }
 }
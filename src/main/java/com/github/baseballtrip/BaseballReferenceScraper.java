@@ -1,36 +1,51 @@
 package com.github.baseballtrip;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static java.lang.Integer.parseInt;
 import static java.lang.Math.round;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.regex.Pattern.compile;
 import static java.util.stream.Collectors.toList;
 
-import com.google.common.collect.HashBasedTable;
+import com.github.baseballtrip.Metrics.Stage;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.ImmutableTable;
+import com.google.common.io.CountingInputStream;
 import com.google.common.io.Files;
 import com.google.common.primitives.Floats;
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URL;
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Comment;
-import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.parser.Parser;
+import org.jsoup.parser.StreamParser;
 import org.jsoup.select.Elements;
+import org.jsoup.select.Evaluator;
+import org.jsoup.select.QueryParser;
 
 class BaseballReferenceScraper {
+  /** Bump whenever a change here alters the parsed output, to invalidate stored boxscores. */
+  static final int PARSER_VERSION = 4;
+
   private final HttpFetcher fetcher;
 
   public BaseballReferenceScraper(HttpFetcher fetcher) {
@@ -38,27 +53,162 @@ class BaseballReferenceScraper {
   }
 
   public Boxscore parseBoxscore(URI uri) throws IOException {
-    Document document = Jsoup.parse(fetcher.fetch(uri), uri.toString());
-    return new Boxscore(parseMatchup(document), parsePlayerStats(document));
+    try (InputStream page = fetcher.fetchStream(uri)) {
+      return parseBoxscore(uri, page);
+    }
+  }
+
+  private static final Evaluator LINESCORE = QueryParser.parse("table.linescore");
+  private static final Evaluator COMMENTED = QueryParser.parse(".commented");
+  private static final Evaluator STAT_TABLE = QueryParser.parse("table.sortable.stats_table");
+  private static final Evaluator BATTING_DETAIL = QueryParser.parse(".footer.no_hide_long");
+
+  /**
+   * Only commented blocks containing one of these are parsed. This skips the large play-by-play
+   * and top plays tables, which hold no player stats.
+   */
+  private static final ImmutableList<String> STAT_TABLE_MARKERS =
+      ImmutableList.of("aria-label=\"Batting\"", "aria-label=\"Pitching\"");
+
+  /** Parses a page that was already fetched from {@code uri}. */
+  public Boxscore parseBoxscore(URI uri, String page) {
+    try (Metrics.StageTimer timer = Metrics.start(Stage.PARSE)) {
+      timer.addBytes(page.length());
+      return parseBoxscore(uri, new StringReader(page), matchup -> true).get();
+    }
+  }
+
+  /**
+   * Parses a UTF-8 page as it's read from {@code page}, without first decoding it into a {@code
+   * String}. The stream is not closed.
+   */
+  public Boxscore parseBoxscore(URI uri, InputStream page) throws IOException {
+    return parseBoxscore(uri, page, matchup -> true).get();
+  }
+
+  /**
+   * Like {@link #parseBoxscore(URI, InputStream)}, but returns empty as soon as the linescore
+   * shows that the game doesn't match {@code matchupFilter}, without parsing any stat tables.
+   */
+  public Optional<Boxscore> parseBoxscore(
+      URI uri, InputStream page, Predicate<Matchup> matchupFilter) throws IOException {
+    CountingInputStream counted = new CountingInputStream(page);
+
+    try (Metrics.StageTimer timer = Metrics.start(Stage.PARSE)) {
+      Optional<Boxscore> result =
+          parseBoxscore(
+              uri,
+              new BufferedReader(new InputStreamReader(counted, UTF_8), 1 << 15),
+              matchupFilter);
+      timer.addBytes(counted.getCount());
+      return result;
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
   }
 
-  private ImmutableList<PlayerStat> parsePlayerStats(Document document) {
-    ArrayList<PlayerStat> result = new ArrayList<>();
+  /**
+   * The page is streamed once rather than built into a full document: the linescore and each
+   * commented block are handled as soon as they close, and every element is dropped from the tree
+   * once it closes, except those within the linescore until it closes too. The linescore comes
+   * before the stat tables, so a filtered out game stops there.
+   */
+  private Optional<Boxscore> parseBoxscore(
+      URI uri, Reader page, Predicate<Matchup> matchupFilter) {
+    Matchup matchup = null;
+    ArrayList<PlayerStat> stats = new ArrayList<>();
+    HashMap<String, Integer> tablesPerGroup = new HashMap<>();
+
+    try (StreamParser parser = new StreamParser(Parser.htmlParser()).parse(page, uri.toString())) {
+      for (Iterator<Element> it = parser.iterator(); it.hasNext(); ) {
+        Element element = it.next();
+
+        if (element.is(LINESCORE)) {
+          matchup = parseMatchup(element, uri.toString());
+
+          if (!matchupFilter.test(matchup)) {
+            return Optional.empty();
+          }
 
-    // content is commented out in the HTML
-    for (Comment comment : document.select(".commented").comments()) {
-      Document parsedComment = Jsoup.parseBodyFragment(comment.getData());
+          element.remove();
+        } else if (element.is(COMMENTED)) {
+          // content is commented out in the HTML
+          for (Node child : element.childNodes()) {
+            if (child instanceof Comment && containsStatTable((Comment) child)) {
+              parseStatsFromComment((Comment) child, matchup, tablesPerGroup, stats);
+            }
+          }
 
-      for (Element statTable : parsedComment.select("table.sortable.stats_table")) {
-        result.addAll(parseStatsFromTable(statTable));
+          element.remove();
+        } else if (matchup != null || !inLinescore(element)) {
+          element.remove();
+        }
       }
+    }
 
-      for (Element battingDetail : parsedComment.select(".footer.no_hide_long")) {
-        parseStatsFromBattingDetail(battingDetail, result);
+    checkArgument(matchup != null, "%s has no linescore", uri);
+    return Optional.of(new Boxscore(matchup, ImmutableList.copyOf(stats)));
+  }
+
+  private static boolean inLinescore(Element element) {
+    for (Element parent = element.parent(); parent != null; parent = parent.parent()) {
+      if (parent.is(LINESCORE)) {
+        return true;
       }
     }
 
-    return ImmutableList.copyOf(result);
+    return false;
+  }
+
+  private static boolean containsStatTable(Comment comment) {
+    String data = comment.getData();
+    return STAT_TABLE_MARKERS.stream().anyMatch(data::contains);
+  }
+
+  /**
+   * Each commented block holds one team's batting table along with its batting details, or the
+   * pitching tables, so details are matched by name only against players from the same block.
+   */
+  private void parseStatsFromComment(
+      Comment comment,
+      Matchup matchup,
+      Map<String, Integer> tablesPerGroup,
+      ArrayList<PlayerStat> result) {
+    ArrayList<PlayerStatBuilder> players = new ArrayList<>();
+    ArrayList<Element> battingDetails = new ArrayList<>();
+
+    try (Metrics.StageTimer timer = Metrics.start(Stage.PARSE_COMMENT);
+        StreamParser parser =
+            new StreamParser(Parser.htmlParser())
+                .parseFragment(comment.getData(), new Element("body"), "")) {
+      timer.addBytes(comment.getData().length());
+
+      for (Iterator<Element> it = parser.iterator(); it.hasNext(); ) {
+        Element element = it.next();
+
+        if (element.is(STAT_TABLE)) {
+          players.addAll(parseStatsFromTable(element, matchup, tablesPerGroup));
+        } else if (element.is(BATTING_DETAIL)) {
+          battingDetails.add(element);
+        }
+      }
+    }
+
+    if (!battingDetails.isEmpty()) {
+      HashMap<String, PlayerStatBuilder> playersByName = new HashMap<>();
+
+      for (PlayerStatBuilder player : players) {
+        playersByName.putIfAbsent(player.playerName, player);
+      }
+
+      for (Element battingDetail : battingDetails) {
+        parseStatsFromBattingDetail(battingDetail, playersByName);
+      }
+    }
+
+    for (PlayerStatBuilder player : players) {
+      result.add(player.build());
+    }
   }
 
   private static final Pattern BATTING_DETAIL_VALUE =
@@ -71,7 +221,8 @@ class BaseballReferenceScraper {
   private static final ImmutableSet<String> IGNORED_BOXSCORE_STATS =
       ImmutableSet.of("OBP", "SLG", "OPS");
 
-  private void parseStatsFromBattingDetail(Element battingDetail, ArrayList<PlayerStat> result) {
+  private void parseStatsFromBattingDetail(
+      Element battingDetail, Map<String, PlayerStatBuilder> playersByName) {
     for (Element label : battingDetail.select("strong")) {
       String text = label.parent().text();
       Matcher lineMatcher = BATTING_DETAIL_LINE.matcher(text);
@@ -81,35 +232,38 @@ class BaseballReferenceScraper {
       }
 
       String statName = lineMatcher.group(1);
+      int statIndex = StatSchema.index(StatSchema.BATTING, statName);
 
-      if (IGNORED_DETAIL_STATS.contains(statName)) {
+      if (IGNORED_DETAIL_STATS.contains(statName) || statIndex < 0) {
         continue;
       }
 
       Matcher valueMatcher = BATTING_DETAIL_VALUE.matcher(lineMatcher.group(2));
 
       while (valueMatcher.find()) {
-        String playerName = valueMatcher.group(1);
+        PlayerStatBuilder player = playersByName.get(valueMatcher.group(1));
         String countStr = valueMatcher.group(2);
-        int count = countStr != null ? parseInt(countStr) : 1;
 
-        for (ListIterator<PlayerStat> it = result.listIterator(); it.hasNext(); ) {
-          PlayerStat stat = it.next();
-
-          if (stat.playerName.equals(playerName)) {
-            it.set(stat.add(ImmutableTable.of("BATTING", statName, (float) count)));
-            break;
-          }
+        if (player != null) {
+          player.statLine.add(statIndex, countStr != null ? parseInt(countStr) : 1);
         }
       }
     }
   }
 
-  private List<PlayerStat> parseStatsFromTable(Element statTable) {
-    ArrayList<PlayerStat> result = new ArrayList<>();
+  /**
+   * Each stat group has the away team's table first and then the home team's, so the team is
+   * known from how many tables of the group came before.
+   */
+  private List<PlayerStatBuilder> parseStatsFromTable(
+      Element statTable, Matchup matchup, Map<String, Integer> tablesPerGroup) {
+    ArrayList<PlayerStatBuilder> result = new ArrayList<>();
     List<String> headers =
         statTable.select("thead th").stream().map(Element::text).collect(toList());
     String statGroup = statTable.selectFirst("thead th").attr("aria-label").toUpperCase();
+    int[] statIndexes = toStatIndexes(statGroup, headers);
+    int tableIndex = tablesPerGroup.merge(statGroup, 1, Integer::sum) - 1;
+    String team = teamOfTable(matchup, tableIndex);
 
     for (Element row : statTable.select("tbody tr")) {
       Element playerNameCell = row.selectFirst("th a");
@@ -122,30 +276,71 @@ class BaseballReferenceScraper {
       String playerName = playerNameCell.text();
 
       result.add(
-          new PlayerStat(
-              playerId,
-              playerName,
-              toStatsTable(statGroup, parsePlayerStatsFromRow(row, headers))));
+          new PlayerStatBuilder(
+              playerId, playerName, team, parsePlayerStatsFromRow(row, statIndexes)));
     }
 
     return result;
   }
 
-  private static ImmutableTable<String, String, Float> toStatsTable(
-      String statGroup, Map<String, Float> statsForGroup) {
-    HashBasedTable<String, String, Float> result = HashBasedTable.create();
-    result.row(statGroup).putAll(statsForGroup);
-    return ImmutableTable.copyOf(result);
+  private static String teamOfTable(Matchup matchup, int tableIndex) {
+    if (matchup == null) {
+      return null;
+    }
+
+    switch (tableIndex) {
+      case 0:
+        return matchup.away;
+      case 1:
+        return matchup.home;
+      default:
+        return null;
+    }
   }
 
-  private ImmutableMap<String, Float> parsePlayerStatsFromRow(Element row, List<String> headers) {
-    LinkedHashMap<String, Float> result = new LinkedHashMap<>();
-    Elements cells = row.select("th, td");
+  /** A player's row from a stat table, which batting details are added to before it's built. */
+  private static class PlayerStatBuilder {
+    private final String playerId;
+
+    private final String playerName;
+
+    private final String team;
+
+    private final StatLine statLine;
+
+    PlayerStatBuilder(String playerId, String playerName, String team, StatLine statLine) {
+      this.playerId = playerId;
+      this.playerName = playerName;
+      this.team = team;
+      this.statLine = statLine;
+    }
+
+    PlayerStat build() {
+      return new PlayerStat(playerId, playerName, team, statLine);
+    }
+  }
+
+  /** Maps each column to its {@link StatSchema} slot, or -1 if the column isn't kept. */
+  private static int[] toStatIndexes(String statGroup, List<String> headers) {
+    int[] result = new int[headers.size()];
 
     for (int i = 0; i < headers.size(); i++) {
       String header = headers.get(i);
+      result[i] =
+          IGNORED_BOXSCORE_STATS.contains(header) ? -1 : StatSchema.index(statGroup, header);
+    }
+
+    return result;
+  }
 
-      if (IGNORED_BOXSCORE_STATS.contains(header)) {
+  private StatLine parsePlayerStatsFromRow(Element row, int[] statIndexes) {
+    StatLine result = new StatLine();
+    Elements cells = row.select("th, td");
+
+    for (int i = 0; i < statIndexes.length; i++) {
+      int statIndex = statIndexes[i];
+
+      if (statIndex < 0) {
         continue;
       }
 
@@ -154,17 +349,19 @@ class BaseballReferenceScraper {
       Float parsedValue = Floats.tryParse(value);
 
       if (parsedValue != null) {
-        if ("IP".equals(header)) {
+        if (statIndex == INNINGS_PITCHED) {
           parsedValue = convertInningsPitchedToDecimal(parsedValue);
         }
 
-        result.put(header, parsedValue);
+        result.set(statIndex, parsedValue);
       }
     }
 
-    return ImmutableMap.copyOf(result);
+    return result;
   }
 
+  private static final int INNINGS_PITCHED = StatSchema.index(StatSchema.PITCHING, "IP");
+
   private static float convertInningsPitchedToDecimal(float inningsPitched) {
     return convertInningsToOuts(inningsPitched) / 3f;
   }
@@ -194,32 +391,62 @@ class BaseballReferenceScraper {
     return teamUri.split("/")[2];
   }
 
-  private Matchup parseMatchup(Document document) {
+  private Matchup parseMatchup(Element linescore, String boxscoreUri) {
     String away =
         proTeamFromTeamUri(
-            document
-                .selectFirst("table.linescore tr:nth-child(1) > td:nth-child(2) > a")
-                .attr("href"));
+            linescore.selectFirst("tr:nth-child(1) > td:nth-child(2) > a").attr("href"));
     String home =
         proTeamFromTeamUri(
-            document
-                .selectFirst("table.linescore tr:nth-child(2) > td:nth-child(2) > a")
-                .attr("href"));
+            linescore.selectFirst("tr:nth-child(2) > td:nth-child(2) > a").attr("href"));
 
-    return new Matchup(parseDateFromBoxscoreLink(document.baseUri()), away, home);
+    return new Matchup(parseDateFromBoxscoreLink(boxscoreUri), away, home);
   }
 
+  private static final String BOXSCORE_URL_PREFIX = "https://www.baseball-reference.com/boxes/";
+
   private static final Pattern BOXSCORE_URL_DATE_PATTERN =
-      compile("[A-Za-z]+(\\d{4})(\\d{2})(\\d{2})\\d+\\.\\w+");
+      compile("([A-Za-z]+)(\\d{4})(\\d{2})(\\d{2})\\d+\\.\\w+");
+
+  /** Parses the date a game was played from its boxscore URI, without fetching the page. */
+  static LocalDate parseGameDate(URI boxscoreUri) {
+    return parseDateFromBoxscoreLink(boxscoreUri.toString());
+  }
+
+  /**
+   * Parses the home team from a boxscore URI, without fetching the page. This is the code the URI
+   * uses, which for some teams differs from the one in the linescore (e.g. CHA rather than CHW).
+   */
+  static String parseHomeTeamCode(URI boxscoreUri) {
+    return matchBoxscoreLink(boxscoreUri.toString()).group(1);
+  }
+
+  /**
+   * The URI a boxscore page saved as {@code fileName} was published at, or empty if the name isn't
+   * that of a boxscore page.
+   */
+  static Optional<URI> boxscoreUriForFileName(String fileName) {
+    Matcher matcher = BOXSCORE_URL_DATE_PATTERN.matcher(fileName);
+
+    if (!matcher.matches()) {
+      return Optional.empty();
+    }
+
+    return Optional.of(URI.create(BOXSCORE_URL_PREFIX + matcher.group(1) + "/" + fileName));
+  }
 
   private static LocalDate parseDateFromBoxscoreLink(String boxscoreUri) {
+    Matcher matcher = matchBoxscoreLink(boxscoreUri);
+    return LocalDate.of(
+        parseInt(matcher.group(2)), parseInt(matcher.group(3)), parseInt(matcher.group(4)));
+  }
+
+  private static Matcher matchBoxscoreLink(String boxscoreUri) {
     try {
       String file = new File(new URL(boxscoreUri).getFile()).getName();
       Matcher matcher = BOXSCORE_URL_DATE_PATTERN.matcher(file);
 
       if (matcher.matches()) {
-        return LocalDate.of(
-            parseInt(matcher.group(1)), parseInt(matcher.group(2)), parseInt(matcher.group(3)));
+        return matcher;
       }
 
       throw new IllegalArgumentException(
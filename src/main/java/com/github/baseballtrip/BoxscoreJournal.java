@@ -0,0 +1,238 @@
+package com.github.baseballtrip;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only log of the boxscores completed by a run, so that a run which dies part way
+ * through can be restarted without fetching those pages again.
+ *
+ * <p>Each record is written straight to the file as its boxscore completes, so it survives the
+ * process dying. The file is only fsynced every {@link #SYNC_INTERVAL} records and on close,
+ * which bounds how much a machine crash can lose. Records are checksummed, and a torn record at
+ * the end of the file is dropped when the journal is reopened.
+ *
+ * <p>Only where each record starts is kept in memory; journaled boxscores are read back from the
+ * file as they're needed. Lookups may happen on any thread, but only one may append at a time.
+ */
+class BoxscoreJournal implements Closeable {
+  private static final int MAGIC = 0x42584a31; // "BXJ1"
+
+  private static final int HEADER_BYTES = 12;
+
+  private static final int RECORD_HEADER_BYTES = 12;
+
+  static final int SYNC_INTERVAL = 32;
+
+  private final FileChannel channel;
+
+  /** Where the record of each completed boxscore starts in the file. */
+  private final ConcurrentHashMap<URI, Long> offsets;
+
+  private int unsyncedRecords;
+
+  private BoxscoreJournal(FileChannel channel, ConcurrentHashMap<URI, Long> offsets) {
+    this.channel = channel;
+    this.offsets = offsets;
+  }
+
+  /**
+   * Opens the journal at {@code file}, replaying any records already in it. A journal written by a
+   * different parser version is discarded.
+   */
+  public static BoxscoreJournal open(Path file, int parserVersion) throws IOException {
+    FileChannel channel = FileChannel.open(file, CREATE, READ, WRITE);
+
+    try {
+      ConcurrentHashMap<URI, Long> offsets = new ConcurrentHashMap<>();
+      long validBytes = replay(channel, parserVersion, offsets);
+
+      if (validBytes == 0) {
+        channel.truncate(0);
+        channel.write(
+            ByteBuffer.allocate(HEADER_BYTES)
+                .putInt(MAGIC)
+                .putInt(parserVersion)
+                .putInt(StatSchema.FINGERPRINT)
+                .flip(),
+            0);
+        channel.force(false);
+        validBytes = HEADER_BYTES;
+      } else if (validBytes < channel.size()) {
+        // drop a torn record left by a crash
+        channel.truncate(validBytes);
+      }
+
+      channel.position(validBytes);
+      return new BoxscoreJournal(channel, offsets);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Adds where every intact record starts to {@code offsets}, returning the length of the valid
+   * prefix of the file, or 0 if the journal needs to be started over.
+   */
+  private static long replay(FileChannel channel, int parserVersion, Map<URI, Long> offsets)
+      throws IOException {
+    DataInputStream input =
+        new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+    long position = 0;
+
+    try {
+      if (input.readInt() != MAGIC
+          || input.readInt() != parserVersion
+          || input.readInt() != StatSchema.FINGERPRINT) {
+        return 0;
+      }
+
+      position = HEADER_BYTES;
+
+      while (true) {
+        int length = input.readInt();
+        long checksum = input.readLong();
+
+        if (length < 0 || length > channel.size() - position) {
+          return position;
+        }
+
+        byte[] record = new byte[length];
+        input.readFully(record);
+
+        if (checksum(record) != checksum) {
+          return position;
+        }
+
+        DataInputStream recordInput = new DataInputStream(new ByteArrayInputStream(record));
+        offsets.putIfAbsent(URI.create(recordInput.readUTF()), position);
+        position += RECORD_HEADER_BYTES + length;
+      }
+    } catch (EOFException e) {
+      return position;
+    }
+  }
+
+  /** Whether {@code uri} has been journaled, by this run or an earlier one. */
+  public boolean contains(URI uri) {
+    return offsets.containsKey(uri);
+  }
+
+  /** Reads back the boxscore journaled for {@code uri}, if it has been. */
+  public Optional<Boxscore> completed(URI uri) throws IOException {
+    Long offset = offsets.get(uri);
+    return offset == null ? Optional.empty() : Optional.of(read(offset));
+  }
+
+  private Boxscore read(long offset) throws IOException {
+    ByteBuffer header = readFully(ByteBuffer.allocate(RECORD_HEADER_BYTES), offset);
+    byte[] record = new byte[header.getInt()];
+    readFully(ByteBuffer.wrap(record), offset + RECORD_HEADER_BYTES);
+    DataInputStream recordInput = new DataInputStream(new ByteArrayInputStream(record));
+    recordInput.readUTF();
+    return DiskBoxscoreStore.readBoxscore(recordInput);
+  }
+
+  /** Reads from {@code position} without moving the channel's own position, which appends use. */
+  private ByteBuffer readFully(ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new EOFException("Journal record at " + position + " is truncated");
+      }
+    }
+
+    return buffer.flip();
+  }
+
+  public int size() {
+    return offsets.size();
+  }
+
+  /** Looks boxscores up in the journal first, falling back to {@code store}. */
+  public BoxscoreStore replayingOver(BoxscoreStore store) {
+    return new BoxscoreStore() {
+      @Override
+      public Optional<Boxscore> load(URI uri) throws IOException {
+        Optional<Boxscore> journaled = completed(uri);
+        return journaled.isPresent() ? journaled : store.load(uri);
+      }
+
+      @Override
+      public void save(URI uri, Boxscore boxscore) throws IOException {
+        store.save(uri, boxscore);
+      }
+    };
+  }
+
+  /** Records that {@code uri} completed, unless it's already in the journal. */
+  public void append(URI uri, Boxscore boxscore) throws IOException {
+    if (offsets.containsKey(uri)) {
+      return;
+    }
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    try (DataOutputStream output = new DataOutputStream(bytes)) {
+      output.writeUTF(uri.toString());
+      DiskBoxscoreStore.writeBoxscore(boxscore, output);
+    }
+
+    byte[] record = bytes.toByteArray();
+    ByteBuffer buffer =
+        ByteBuffer.allocate(RECORD_HEADER_BYTES + record.length)
+            .putInt(record.length)
+            .putLong(checksum(record))
+            .put(record)
+            .flip();
+
+    long offset = channel.position();
+
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+
+    offsets.put(uri, offset);
+
+    if (++unsyncedRecords >= SYNC_INTERVAL) {
+      sync();
+    }
+  }
+
+  private void sync() throws IOException {
+    channel.force(false);
+    unsyncedRecords = 0;
+  }
+
+  private static long checksum(byte[] record) {
+    CRC32 crc = new CRC32();
+    crc.update(record);
+    return crc.getValue();
+  }
+
+  @Override
+  public void close() throws IOException {
+    try (channel) {
+      sync();
+    }
+  }
+}
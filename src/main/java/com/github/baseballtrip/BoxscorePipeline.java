@@ -0,0 +1,211 @@
+package com.github.baseballtrip;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Fetches and parses boxscores concurrently, delivering them in input order.
+ *
+ * <p>Pages are fetched on their own pool, so several requests can wait on the fetcher's rate
+ * limiter and the network at once while earlier pages are parsed on a separate CPU-sized pool.
+ * At most {@code fetchConcurrency + parseThreads} boxscores are in flight at any time; both pools
+ * have queues bounded by that window, and the collector waits on the oldest one before admitting
+ * another URI.
+ */
+class BoxscorePipeline {
+  interface Sink {
+    void accept(URI uri, Boxscore boxscore) throws IOException;
+
+    /**
+     * Called in place of {@link #accept} when {@code uri} couldn't be fetched or parsed. The run
+     * carries on with the remaining URIs unless this throws, which it does by default.
+     */
+    default void failed(URI uri, Exception e) throws IOException {
+      Throwables.throwIfInstanceOf(e, IOException.class);
+      Throwables.throwIfUnchecked(e);
+      throw new IOException(e);
+    }
+  }
+
+  private final HttpFetcher fetcher;
+
+  private final BaseballReferenceScraper scraper;
+
+  private final BoxscoreStore store;
+
+  private final int fetchConcurrency;
+
+  private final int parseThreads;
+
+  private final Predicate<URI> revalidate;
+
+  private final Predicate<Matchup> matchupFilter;
+
+  public BoxscorePipeline(
+      HttpFetcher fetcher, BoxscoreStore store, int fetchConcurrency, int parseThreads) {
+    this(fetcher, store, fetchConcurrency, parseThreads, uri -> false, matchup -> true);
+  }
+
+  /**
+   * Stored boxscores matching {@code revalidate} are only reused if the fetcher reports that their
+   * page hasn't changed. Otherwise the new page is parsed and stored in their place.
+   *
+   * <p>Games that don't match {@code matchupFilter} are not delivered to the sink, or stored. Their
+   * pages are only parsed as far as the linescore.
+   */
+  public BoxscorePipeline(
+      HttpFetcher fetcher,
+      BoxscoreStore store,
+      int fetchConcurrency,
+      int parseThreads,
+      Predicate<URI> revalidate,
+      Predicate<Matchup> matchupFilter) {
+    checkArgument(fetchConcurrency > 0, "fetchConcurrency must be positive: %s", fetchConcurrency);
+    checkArgument(parseThreads > 0, "parseThreads must be positive: %s", parseThreads);
+    this.fetcher = fetcher;
+    this.scraper = new BaseballReferenceScraper(fetcher);
+    this.store = store;
+    this.fetchConcurrency = fetchConcurrency;
+    this.parseThreads = parseThreads;
+    this.revalidate = revalidate;
+    this.matchupFilter = matchupFilter;
+  }
+
+  public void run(Iterable<URI> uris, Sink sink) throws IOException {
+    int window = fetchConcurrency + parseThreads;
+    ThreadPoolExecutor fetchPool = newPool("fetch-%d", fetchConcurrency, window);
+    ThreadPoolExecutor parsePool = newPool("parse-%d", parseThreads, window);
+    ArrayDeque<InFlight> inFlight = new ArrayDeque<>(window);
+
+    try {
+      for (URI uri : uris) {
+        if (inFlight.size() == window) {
+          inFlight.remove().deliverTo(sink);
+        }
+
+        inFlight.add(new InFlight(uri, load(uri, fetchPool, parsePool)));
+      }
+
+      while (!inFlight.isEmpty()) {
+        inFlight.remove().deliverTo(sink);
+      }
+    } finally {
+      fetchPool.shutdownNow();
+      parsePool.shutdownNow();
+    }
+  }
+
+  private CompletableFuture<Optional<Boxscore>> load(
+      URI uri, ThreadPoolExecutor fetchPool, ThreadPoolExecutor parsePool) throws IOException {
+    Optional<Boxscore> stored = store.load(uri);
+    Optional<Boxscore> previous = stored.filter(boxscore -> matchupFilter.test(boxscore.matchup));
+
+    if (stored.isPresent() && !revalidate.test(uri)) {
+      return CompletableFuture.completedFuture(previous);
+    }
+
+    if (stored.isPresent()) {
+      return CompletableFuture.supplyAsync(() -> fetchIfChanged(uri), fetchPool)
+          .thenApplyAsync(
+              page -> page.isPresent() ? parseAndStore(uri, page.get()) : previous, parsePool);
+    }
+
+    return CompletableFuture.supplyAsync(() -> fetch(uri), fetchPool)
+        .thenApplyAsync(page -> parseAndStore(uri, page), parsePool);
+  }
+
+  private InputStream fetch(URI uri) {
+    try {
+      return fetcher.fetchStream(uri);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private Optional<InputStream> fetchIfChanged(URI uri) {
+    try {
+      return fetcher.fetchIfChanged(uri);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private Optional<Boxscore> parseAndStore(URI uri, InputStream page) {
+    try (page) {
+      Optional<Boxscore> result = scraper.parseBoxscore(uri, page, matchupFilter);
+
+      if (result.isPresent()) {
+        store.save(uri, result.get());
+      }
+
+      return result;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static ThreadPoolExecutor newPool(String nameFormat, int threads, int queueCapacity) {
+    return new ThreadPoolExecutor(
+        threads,
+        threads,
+        0,
+        TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(queueCapacity),
+        new ThreadFactoryBuilder().setNameFormat(nameFormat).setDaemon(true).build());
+  }
+
+  private static class InFlight {
+    private final URI uri;
+
+    private final CompletableFuture<Optional<Boxscore>> boxscore;
+
+    InFlight(URI uri, CompletableFuture<Optional<Boxscore>> boxscore) {
+      this.uri = uri;
+      this.boxscore = boxscore;
+    }
+
+    void deliverTo(Sink sink) throws IOException {
+      Optional<Boxscore> result;
+
+      try {
+        result = boxscore.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException(e);
+      } catch (ExecutionException e) {
+        sink.failed(uri, unwrap(e.getCause()));
+        return;
+      }
+
+      if (result.isPresent()) {
+        sink.accept(uri, result.get());
+      }
+    }
+
+    private Exception unwrap(Throwable cause) {
+      if (cause instanceof UncheckedIOException) {
+        return new IOException("Failed to load " + uri, cause.getCause());
+      }
+
+      if (cause instanceof RuntimeException) {
+        return new IllegalStateException("Failed to parse " + uri, cause);
+      }
+
+      return new IOException("Failed to load " + uri, cause);
+    }
+  }
+}
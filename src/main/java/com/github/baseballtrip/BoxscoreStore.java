@@ -0,0 +1,23 @@
+package com.github.baseballtrip;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Optional;
+
+/** Persists parsed boxscores so that re-runs don't need to fetch or parse their pages again. */
+interface BoxscoreStore {
+  BoxscoreStore NONE =
+      new BoxscoreStore() {
+        @Override
+        public Optional<Boxscore> load(URI uri) {
+          return Optional.empty();
+        }
+
+        @Override
+        public void save(URI uri, Boxscore boxscore) {}
+      };
+
+  Optional<Boxscore> load(URI uri) throws IOException;
+
+  void save(URI uri, Boxscore boxscore) throws IOException;
+}
@@ -0,0 +1,59 @@
+package com.github.baseballtrip;
+
+import com.google.common.collect.Iterators;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+
+/**
+ * Formats the rows of one rollup again and again as games are added, reusing the rows of groups
+ * that haven't changed since they were last formatted.
+ */
+class CachedCsvRows {
+  private final Rollup rollup;
+
+  private final BaseballCsvFormatter formatter = new BaseballCsvFormatter();
+
+  private final IdentityHashMap<GroupTotals, CachedRow> rowsByGroup = new IdentityHashMap<>();
+
+  private int reformatted;
+
+  CachedCsvRows(Rollup rollup) {
+    this.rollup = rollup;
+  }
+
+  /** The header and a row per group, as {@link BaseballCsvFormatter#toCsvRows} would write them. */
+  public Iterator<String[]> rows(RollupAggregator aggregator) {
+    reformatted = 0;
+    return Iterators.concat(
+        Iterators.singletonIterator(formatter.headerRow(rollup)),
+        Iterators.transform(aggregator.groups(rollup).iterator(), this::row));
+  }
+
+  /** How many rows the last {@link #rows} call had to format, once it's been read through. */
+  public int reformatted() {
+    return reformatted;
+  }
+
+  private String[] row(GroupTotals group) {
+    CachedRow cached = rowsByGroup.get(group);
+
+    if (cached == null || cached.games != group.games()) {
+      cached = new CachedRow(group.games(), formatter.formatRow(group));
+      rowsByGroup.put(group, cached);
+      reformatted++;
+    }
+
+    return cached.cells;
+  }
+
+  private static final class CachedRow {
+    private final int games;
+
+    private final String[] cells;
+
+    CachedRow(int games, String[] cells) {
+      this.games = games;
+      this.cells = cells;
+    }
+  }
+}
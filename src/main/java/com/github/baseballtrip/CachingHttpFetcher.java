@@ -0,0 +1,386 @@
+package com.github.baseballtrip;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Comparator.comparing;
+
+import com.google.common.hash.Hashing;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Stores fetched pages on disk, gzip-compressed and keyed by a hash of the URI. Boxscores for
+ * finished games rarely change, so a cached page is served without consulting the delegate (and
+ * therefore without waiting on its rate limiter) unless it's due for revalidation.
+ *
+ * <p>Once the cache grows past {@code maxCacheBytes}, the least recently used pages are evicted.
+ * Recency survives restarts because each hit also bumps the file's modification time.
+ *
+ * <p>Several processes can share a cache directory. A page that one of them is already downloading
+ * is read from the cache by the others once it's written, rather than downloaded again.
+ */
+class CachingHttpFetcher implements HttpFetcher {
+  private static final String CACHE_FILE_SUFFIX = ".html.gz";
+
+  /** Stored next to a page when it was served with an {@code ETag} or {@code Last-Modified}. */
+  private static final String VALIDATORS_FILE_SUFFIX = ".validators";
+
+  private static final String ETAG = "ETag";
+
+  private static final String LAST_MODIFIED = "Last-Modified";
+
+  private final HttpFetcher delegate;
+
+  private final Path cacheDir;
+
+  private final long maxCacheBytes;
+
+  private final Predicate<URI> revalidate;
+
+  private final Path lockDir;
+
+  /** Downloads in progress in this process, by cache file name. */
+  private final ConcurrentHashMap<String, CompletableFuture<byte[]>> downloads =
+      new ConcurrentHashMap<>();
+
+  /** Cache file name to compressed size, in access order (least recently used first). */
+  private final LinkedHashMap<String, Long> entrySizes = new LinkedHashMap<>(16, 0.75f, true);
+
+  private long cacheBytes;
+
+  public CachingHttpFetcher(HttpFetcher delegate, Path cacheDir, long maxCacheBytes)
+      throws IOException {
+    this(delegate, cacheDir, maxCacheBytes, uri -> false);
+  }
+
+  /**
+   * Cached pages matching {@code revalidate} are checked against the delegate with a conditional
+   * request on every fetch, in case they've changed.
+   */
+  public CachingHttpFetcher(
+      HttpFetcher delegate, Path cacheDir, long maxCacheBytes, Predicate<URI> revalidate)
+      throws IOException {
+    checkArgument(maxCacheBytes > 0, "maxCacheBytes must be positive: %s", maxCacheBytes);
+    this.delegate = delegate;
+    this.cacheDir = Files.createDirectories(cacheDir);
+    this.maxCacheBytes = maxCacheBytes;
+    this.revalidate = revalidate;
+    this.lockDir = Files.createDirectories(cacheDir.resolve("locks"));
+    loadExistingEntries();
+  }
+
+  private void loadExistingEntries() throws IOException {
+    List<Path> files;
+
+    try (Stream<Path> listing = Files.list(cacheDir)) {
+      files =
+          listing
+              .filter(path -> path.getFileName().toString().endsWith(CACHE_FILE_SUFFIX))
+              .collect(Collectors.toList());
+    }
+
+    HashMap<Path, FileTime> lastAccess = new HashMap<>();
+
+    for (Path file : files) {
+      lastAccess.put(file, Files.getLastModifiedTime(file));
+    }
+
+    files.sort(comparing(lastAccess::get));
+
+    for (Path file : files) {
+      long size = Files.size(file);
+      entrySizes.put(file.getFileName().toString(), size);
+      cacheBytes += size;
+    }
+  }
+
+  @Override
+  public String fetch(URI uri) throws IOException {
+    try (InputStream page = fetchStream(uri)) {
+      return new String(page.readAllBytes(), UTF_8);
+    }
+  }
+
+  /** Cached pages are decompressed as they're read, rather than loaded up front. */
+  @Override
+  public InputStream fetchStream(URI uri) throws IOException {
+    String fileName = cacheFileName(uri);
+    Optional<InputStream> changed = refresh(uri, fileName);
+
+    if (changed.isPresent()) {
+      return changed.get();
+    }
+
+    InputStream cached = openCached(fileName);
+    // null if it was evicted since it was refreshed
+    return cached != null ? cached : fetchAndCache(uri, fileName);
+  }
+
+  @Override
+  public Optional<InputStream> fetchIfChanged(URI uri) throws IOException {
+    return refresh(uri, cacheFileName(uri));
+  }
+
+  /**
+   * Returns the page if it isn't cached, or if it's due for revalidation and the delegate served a
+   * new copy. Returns empty if the cached page is still current.
+   */
+  private Optional<InputStream> refresh(URI uri, String fileName) throws IOException {
+    boolean cached;
+
+    synchronized (this) {
+      cached = entrySizes.containsKey(fileName);
+    }
+
+    if (!cached) {
+      return Optional.of(fetchAndCache(uri, fileName));
+    }
+
+    if (!revalidate.test(uri)) {
+      return Optional.empty();
+    }
+
+    Optional<FetchedPage> modified = delegate.fetchIfModified(uri, readValidators(fileName));
+
+    if (modified.isEmpty()) {
+      return Optional.empty();
+    }
+
+    return Optional.of(new ByteArrayInputStream(cache(fileName, modified.get())));
+  }
+
+  /**
+   * Fetches a page that isn't cached. Concurrent fetches of the same page share one download,
+   * whether they come from this process or from another one using the same cache directory.
+   */
+  private InputStream fetchAndCache(URI uri, String fileName) throws IOException {
+    CompletableFuture<byte[]> download = new CompletableFuture<>();
+    CompletableFuture<byte[]> existing = downloads.putIfAbsent(fileName, download);
+
+    if (existing != null) {
+      try {
+        return new ByteArrayInputStream(existing.join());
+      } catch (CompletionException e) {
+        throw new IOException("Failed to fetch " + uri, e.getCause());
+      }
+    }
+
+    try {
+      byte[] page = downloadOnce(uri, fileName);
+      download.complete(page);
+      return new ByteArrayInputStream(page);
+    } catch (IOException | RuntimeException e) {
+      download.completeExceptionally(e);
+      throw e;
+    } finally {
+      downloads.remove(fileName, download);
+    }
+  }
+
+  /**
+   * Downloads the page after claiming it with a lock file of its own, so that another process
+   * wanting the same page waits and then reads it from the cache. Only that page's lock is held
+   * while it downloads, so other pages aren't held up. Lock files are left in place: deleting one
+   * would let a process waiting on the deleted file and one that creates a new file at the same
+   * path both hold the lock. {@link #fetchAndCache} keeps this process to one download of a page
+   * at a time, so its threads never contend for the same lock.
+   */
+  private byte[] downloadOnce(URI uri, String fileName) throws IOException {
+    Path lockFile = lockDir.resolve(fileName + ".lock");
+
+    try (FileChannel lockChannel = FileChannel.open(lockFile, CREATE, WRITE);
+        FileLock lock = lockChannel.lock()) {
+      // another process may have published the page while this one waited for the claim
+      byte[] cachedElsewhere = readCachedByOtherProcess(fileName);
+
+      if (cachedElsewhere != null) {
+        return cachedElsewhere;
+      }
+
+      FetchedPage page =
+          delegate
+              .fetchIfModified(uri, PageValidators.NONE)
+              .orElseThrow(
+                  () -> new IOException(uri + " was not modified, but no validators were sent"));
+      return cache(fileName, page);
+    }
+  }
+
+  /** Adopts a page that another process wrote after this one loaded the cache index. */
+  private byte[] readCachedByOtherProcess(String fileName) throws IOException {
+    Path file = cacheDir.resolve(fileName);
+    long size;
+
+    try {
+      size = Files.size(file);
+    } catch (NoSuchFileException e) {
+      return null;
+    }
+
+    byte[] result;
+
+    try (InputStream input = new GZIPInputStream(Files.newInputStream(file))) {
+      result = input.readAllBytes();
+    } catch (NoSuchFileException e) {
+      return null;
+    }
+
+    synchronized (this) {
+      Long previousSize = entrySizes.put(fileName, size);
+      cacheBytes += size - (previousSize == null ? 0 : previousSize);
+      evictLeastRecentlyUsed();
+    }
+
+    return result;
+  }
+
+  private byte[] cache(String fileName, FetchedPage page) throws IOException {
+    byte[] body;
+
+    try (InputStream input = page.body) {
+      body = input.readAllBytes();
+    }
+
+    writeValidators(fileName, page.validators);
+    write(fileName, body);
+    return body;
+  }
+
+  private InputStream openCached(String fileName) throws IOException {
+    synchronized (this) {
+      if (entrySizes.get(fileName) == null) {
+        return null;
+      }
+    }
+
+    Path file = cacheDir.resolve(fileName);
+    InputStream input;
+
+    try {
+      input = Files.newInputStream(file);
+    } catch (NoSuchFileException e) {
+      // evicted concurrently
+      synchronized (this) {
+        Long size = entrySizes.remove(fileName);
+        cacheBytes -= size == null ? 0 : size;
+      }
+      return null;
+    }
+
+    try {
+      InputStream result = new GZIPInputStream(input, 1 << 16);
+      Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+      return result;
+    } catch (IOException e) {
+      input.close();
+      throw e;
+    }
+  }
+
+  private void write(String fileName, byte[] page) throws IOException {
+    Path file = cacheDir.resolve(fileName);
+    Path tempFile = Files.createTempFile(cacheDir, fileName, ".tmp");
+
+    try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(tempFile))) {
+      output.write(page);
+    }
+
+    long size = Files.size(tempFile);
+    Files.move(tempFile, file, ATOMIC_MOVE, REPLACE_EXISTING);
+
+    synchronized (this) {
+      Long previousSize = entrySizes.put(fileName, size);
+      cacheBytes += size - (previousSize == null ? 0 : previousSize);
+      evictLeastRecentlyUsed();
+    }
+  }
+
+  private PageValidators readValidators(String fileName) throws IOException {
+    Properties properties = new Properties();
+
+    try (InputStream input = Files.newInputStream(validatorsFile(fileName))) {
+      properties.load(input);
+    } catch (NoSuchFileException e) {
+      return PageValidators.NONE;
+    }
+
+    return new PageValidators(
+        properties.getProperty(ETAG), properties.getProperty(LAST_MODIFIED));
+  }
+
+  private void writeValidators(String fileName, PageValidators validators) throws IOException {
+    Path file = validatorsFile(fileName);
+
+    if (validators.isEmpty()) {
+      Files.deleteIfExists(file);
+      return;
+    }
+
+    Properties properties = new Properties();
+
+    if (validators.etag != null) {
+      properties.setProperty(ETAG, validators.etag);
+    }
+
+    if (validators.lastModified != null) {
+      properties.setProperty(LAST_MODIFIED, validators.lastModified);
+    }
+
+    Path tempFile = Files.createTempFile(cacheDir, file.getFileName().toString(), ".tmp");
+
+    try (OutputStream output = Files.newOutputStream(tempFile)) {
+      properties.store(output, null);
+    }
+
+    Files.move(tempFile, file, ATOMIC_MOVE, REPLACE_EXISTING);
+  }
+
+  private Path validatorsFile(String fileName) {
+    return cacheDir.resolve(fileName + VALIDATORS_FILE_SUFFIX);
+  }
+
+  private void evictLeastRecentlyUsed() throws IOException {
+    Iterator<Map.Entry<String, Long>> it = entrySizes.entrySet().iterator();
+
+    // never evict the entry that was just written
+    while (cacheBytes > maxCacheBytes && entrySizes.size() > 1) {
+      Map.Entry<String, Long> eldest = it.next();
+      Files.deleteIfExists(cacheDir.resolve(eldest.getKey()));
+      Files.deleteIfExists(validatorsFile(eldest.getKey()));
+      cacheBytes -= eldest.getValue();
+      it.remove();
+    }
+  }
+
+  private static String cacheFileName(URI uri) {
+    return Hashing.sha256().hashString(uri.toString(), UTF_8) + CACHE_FILE_SUFFIX;
+  }
+}
@@ -0,0 +1,144 @@
+package com.github.baseballtrip;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+
+/**
+ * How a stat column is written, resolved once per column. Values are appended straight to a
+ * reusable buffer, with the same output as the {@link DecimalFormat} pattern each format stands in
+ * for.
+ *
+ * <p>A float times 10, 100 or 1000 is exact as a double, so rounding the scaled value half-even
+ * with {@link Math#rint} rounds exactly as {@link DecimalFormat} does. Values outside the range
+ * this handles, which stats never reach, fall back to the pattern itself.
+ */
+enum CellFormat {
+  /** Counts, with grouping and at most one decimal, as {@code ,##0.#}. */
+  COUNT(",##0.#") {
+    @Override
+    void appendInRange(float value, DecimalFormatSymbols symbols, StringBuilder out) {
+      long tenths = (long) Math.rint(value * 10d);
+      appendInteger(tenths / 10, 1, true, symbols, out);
+
+      if (tenths % 10 != 0) {
+        out.append(symbols.getDecimalSeparator());
+        appendInteger(tenths % 10, 1, false, symbols, out);
+      }
+    }
+  },
+
+  /** Rate stats like AVG, as {@code .000}. */
+  AVERAGE(".000") {
+    @Override
+    void appendInRange(float value, DecimalFormatSymbols symbols, StringBuilder out) {
+      long thousandths = (long) Math.rint(value * 1000d);
+      appendInteger(thousandths / 1000, 0, false, symbols, out);
+      out.append(symbols.getDecimalSeparator());
+      appendInteger(thousandths % 1000, 3, false, symbols, out);
+    }
+  },
+
+  /** As {@code 0.00}. */
+  ERA("0.00") {
+    @Override
+    void appendInRange(float value, DecimalFormatSymbols symbols, StringBuilder out) {
+      long hundredths = (long) Math.rint(value * 100d);
+      appendInteger(hundredths / 100, 1, false, symbols, out);
+      out.append(symbols.getDecimalSeparator());
+      appendInteger(hundredths % 100, 2, false, symbols, out);
+    }
+  },
+
+  /** Innings pitched as whole innings and outs, e.g. 6.2 for six and two thirds. */
+  INNINGS(null) {
+    @Override
+    void append(float value, DecimalFormatSymbols symbols, StringBuilder out) {
+      if (value >= 0 && value < MAX_IN_RANGE) {
+        // summing thirds can fall just short of a whole inning, so round to the nearest out
+        long outs = Math.round(value * 3d);
+        appendInteger(outs / 3, 1, false, symbols, out);
+        out.append('.');
+        appendInteger(outs % 3, 1, false, symbols, out);
+        return;
+      }
+
+      int intPart = (int) value;
+      float fracPart = value - intPart;
+      int fracOuts = Math.round(fracPart * 3);
+      checkState(fracOuts < 3, "Invalid innings value: %s", value);
+      out.append(String.format("%d.%d", intPart, fracOuts));
+    }
+
+    @Override
+    void appendInRange(float value, DecimalFormatSymbols symbols, StringBuilder out) {
+      append(value, symbols, out);
+    }
+  };
+
+  /** Past this, scaled values might not fit in a long. */
+  private static final float MAX_IN_RANGE = 1e12f;
+
+  private static final long[] POWERS_OF_TEN = new long[19];
+
+  static {
+    POWERS_OF_TEN[0] = 1;
+
+    for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+      POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+  }
+
+  private final String pattern;
+
+  CellFormat(String pattern) {
+    this.pattern = pattern;
+  }
+
+  static CellFormat forHeader(String header) {
+    switch (header) {
+      case "IP":
+        return INNINGS;
+      case "AVG":
+      case "SLG":
+        return AVERAGE;
+      case "ERA":
+        return ERA;
+      default:
+        return COUNT;
+    }
+  }
+
+  void append(float value, DecimalFormatSymbols symbols, StringBuilder out) {
+    if (value >= 0 && value < MAX_IN_RANGE) {
+      appendInRange(value, symbols, out);
+    } else {
+      out.append(new DecimalFormat(pattern, symbols).format(value));
+    }
+  }
+
+  abstract void appendInRange(float value, DecimalFormatSymbols symbols, StringBuilder out);
+
+  /** Appends a non-negative value with at least {@code minDigits} digits. */
+  private static void appendInteger(
+      long value,
+      int minDigits,
+      boolean grouping,
+      DecimalFormatSymbols symbols,
+      StringBuilder out) {
+    int digits = minDigits;
+
+    while (digits < POWERS_OF_TEN.length && value >= POWERS_OF_TEN[digits]) {
+      digits++;
+    }
+
+    for (int i = digits - 1; i >= 0; i--) {
+      out.append((char) (symbols.getZeroDigit() + value / POWERS_OF_TEN[i] % 10));
+
+      if (grouping && i > 0 && i % 3 == 0) {
+        out.append(symbols.getGroupingSeparator());
+      }
+    }
+  }
+}
@@ -0,0 +1,525 @@
+package com.github.baseballtrip;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Keeps every parsed player-game line in column-oriented segment files, so totals can be
+ * recomputed over any subset of games without fetching or parsing pages again.
+ *
+ * <p>Each segment is written once, in full, and never modified. It holds a dictionary of the
+ * strings it uses, a table of its games, and then one column per row attribute and per {@link
+ * StatSchema} slot, with absent stats as NaN. Segments are read through a memory mapping, and
+ * rows are handed to the aggregator through one reused {@link PlayerGame}, so a scan allocates
+ * nothing per row once every group has been seen. Each stat column is then summed in a pass of its
+ * own.
+ *
+ * <p>Writers skip games that are already stored, so a game is only in more than one segment if
+ * runs wrote it at the same time. It's then read from the oldest only.
+ */
+class ColumnarStatStore {
+  private static final int MAGIC = 0x42584331; // "BXC1"
+
+  private static final String SEGMENT_PREFIX = "segment-";
+
+  private static final String SEGMENT_SUFFIX = ".seg";
+
+  /** Rows a writer buffers before it publishes them as a segment. */
+  private static final int SEGMENT_ROWS = 1 << 16;
+
+  private final Path storeDir;
+
+  public ColumnarStatStore(Path storeDir) throws IOException {
+    this.storeDir = Files.createDirectories(storeDir);
+  }
+
+  /**
+   * Collects boxscores of games that aren't stored yet into new segments, which are added to the
+   * store as they fill up.
+   */
+  public SegmentWriter newSegment() throws IOException {
+    return newSegment(SEGMENT_ROWS);
+  }
+
+  SegmentWriter newSegment(int segmentRows) throws IOException {
+    HashSet<String> stored = new HashSet<>();
+
+    for (Path file : segmentFiles()) {
+      Segment segment = Segment.map(file);
+
+      for (int game = 0; game < segment.gameCount; game++) {
+        stored.add(segment.gameUri(game));
+      }
+    }
+
+    return new SegmentWriter(segmentRows, stored);
+  }
+
+  /**
+   * Adds every stored player-game whose game passes both filters to {@code aggregator}, in the
+   * order the games were written.
+   */
+  public void aggregate(
+      Predicate<URI> gameFilter, Predicate<Matchup> matchupFilter, RollupAggregator aggregator)
+      throws IOException {
+    List<Segment> segments = new ArrayList<>();
+
+    for (Path file : segmentFiles()) {
+      segments.add(Segment.map(file));
+    }
+
+    HashSet<String> seenGames = new HashSet<>();
+    int rollupCount = aggregator.rollups().size();
+
+    try (Metrics.StageTimer timer = Metrics.start(Metrics.Stage.AGGREGATE)) {
+      for (Segment segment : segments) {
+        boolean[] included = new boolean[segment.gameCount];
+
+        for (int game = 0; game < segment.gameCount; game++) {
+          String uri = segment.gameUri(game);
+          included[game] =
+              seenGames.add(uri)
+                  && gameFilter.test(URI.create(uri))
+                  && matchupFilter.test(segment.matchup(game));
+        }
+
+        SegmentRow row = new SegmentRow(segment);
+        int[] rows = new int[segment.rowCount];
+        GroupTotals[] rowGroups = new GroupTotals[segment.rowCount * rollupCount];
+        int rowsIncluded = 0;
+
+        for (int i = 0; i < segment.rowCount; i++) {
+          if (included[segment.game(i)]) {
+            aggregator.addWithoutStats(row.at(i), rowGroups, rowsIncluded * rollupCount);
+            rows[rowsIncluded++] = i;
+          }
+        }
+
+        for (int slot = 0; slot < StatSchema.SIZE; slot++) {
+          for (int i = 0; i < rowsIncluded; i++) {
+            float value = segment.stat(slot, rows[i]);
+
+            if (Float.isNaN(value)) {
+              continue;
+            }
+
+            for (int group = i * rollupCount; group < (i + 1) * rollupCount; group++) {
+              if (rowGroups[group] != null) {
+                rowGroups[group].addStat(slot, value);
+              }
+            }
+          }
+        }
+
+        timer.addBytes(segment.buffer.capacity());
+      }
+    }
+  }
+
+  private List<Path> segmentFiles() throws IOException {
+    try (Stream<Path> files = Files.list(storeDir)) {
+      return files
+          .filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+          .sorted()
+          .collect(Collectors.toList());
+    }
+  }
+
+  /**
+   * Buffers rows as primitive columns, and writes them out as a segment once there are {@code
+   * segmentRows} of them and when it's closed, so its memory stays bounded however many games it's
+   * given. A game's rows always go in one segment. Closing a writer that was given nothing new
+   * writes no segment.
+   */
+  class SegmentWriter implements Closeable {
+    private final int segmentRows;
+
+    /** URIs of the games in the store, including those this writer added. */
+    private final HashSet<String> stored;
+
+    private final LinkedHashMap<String, Integer> strings = new LinkedHashMap<>();
+
+    private final LinkedHashMap<URI, int[]> games = new LinkedHashMap<>();
+
+    private int rowCount;
+
+    private int[] rowGames = new int[1024];
+
+    private int[] rowPlayers = new int[1024];
+
+    private int[] rowNames = new int[1024];
+
+    private int[] rowTeams = new int[1024];
+
+    private float[][] rowStats = new float[StatSchema.SIZE][1024];
+
+    private SegmentWriter(int segmentRows, HashSet<String> stored) {
+      this.segmentRows = segmentRows;
+      this.stored = stored;
+    }
+
+    /** Adds the game, unless it's already stored. */
+    public void add(URI uri, Boxscore boxscore) throws IOException {
+      if (!stored.add(uri.toString())) {
+        return;
+      }
+
+      int game = games.size();
+      Matchup matchup = boxscore.matchup;
+      games.put(
+          uri,
+          new int[] {
+            string(uri.toString()),
+            (int) matchup.date.toEpochDay(),
+            string(matchup.away),
+            string(matchup.home)
+          });
+
+      for (PlayerStat stat : boxscore.stats) {
+        if (rowCount == rowGames.length) {
+          grow(rowCount * 2);
+        }
+
+        rowGames[rowCount] = game;
+        rowPlayers[rowCount] = string(stat.playerId);
+        rowNames[rowCount] = string(stat.playerName);
+        rowTeams[rowCount] = stat.team == null ? -1 : string(stat.team);
+
+        for (int slot = 0; slot < StatSchema.SIZE; slot++) {
+          rowStats[slot][rowCount] = stat.statLine.get(slot);
+        }
+
+        rowCount++;
+      }
+
+      if (rowCount >= segmentRows) {
+        flush();
+      }
+    }
+
+    private int string(String value) {
+      return strings.computeIfAbsent(value, v -> strings.size());
+    }
+
+    private void grow(int capacity) {
+      rowGames = Arrays.copyOf(rowGames, capacity);
+      rowPlayers = Arrays.copyOf(rowPlayers, capacity);
+      rowNames = Arrays.copyOf(rowNames, capacity);
+      rowTeams = Arrays.copyOf(rowTeams, capacity);
+
+      for (int slot = 0; slot < StatSchema.SIZE; slot++) {
+        rowStats[slot] = Arrays.copyOf(rowStats[slot], capacity);
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      flush();
+    }
+
+    /** Writes out the rows buffered so far as a segment, and starts the next one. */
+    private void flush() throws IOException {
+      if (games.isEmpty()) {
+        return;
+      }
+
+      Path tempFile = Files.createTempFile(storeDir, SEGMENT_PREFIX, ".tmp");
+
+      try (DataOutputStream output =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+        write(output);
+      }
+
+      publish(tempFile);
+      strings.clear();
+      games.clear();
+      rowCount = 0;
+    }
+
+    private void write(DataOutputStream output) throws IOException {
+      output.writeInt(MAGIC);
+      output.writeInt(StatSchema.FINGERPRINT);
+      output.writeInt(strings.size());
+      output.writeInt(games.size());
+      output.writeInt(rowCount);
+
+      for (String value : strings.keySet()) {
+        byte[] bytes = value.getBytes(UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+      }
+
+      // keeps the columns aligned for the mapped reads
+      while (output.size() % Integer.BYTES != 0) {
+        output.writeByte(0);
+      }
+
+      for (int[] game : games.values()) {
+        for (int value : game) {
+          output.writeInt(value);
+        }
+      }
+
+      for (int[] column : new int[][] {rowGames, rowPlayers, rowNames, rowTeams}) {
+        for (int i = 0; i < rowCount; i++) {
+          output.writeInt(column[i]);
+        }
+      }
+
+      for (float[] column : rowStats) {
+        for (int i = 0; i < rowCount; i++) {
+          output.writeFloat(column[i]);
+        }
+      }
+    }
+
+    /**
+     * Links the segment in under the next free number, so segments sort in the order written.
+     * Unlike a move, a link fails if another run took the number first, rather than replacing its
+     * segment.
+     */
+    private void publish(Path tempFile) throws IOException {
+      try {
+        while (true) {
+          List<Path> existing = segmentFiles();
+          int next =
+              existing.isEmpty() ? 0 : segmentNumber(existing.get(existing.size() - 1)) + 1;
+          Path file =
+              storeDir.resolve(String.format("%s%09d%s", SEGMENT_PREFIX, next, SEGMENT_SUFFIX));
+
+          try {
+            Files.createLink(file, tempFile);
+            return;
+          } catch (FileAlreadyExistsException e) {
+            // another run published the same number first
+          }
+        }
+      } finally {
+        Files.delete(tempFile);
+      }
+    }
+  }
+
+  private static int segmentNumber(Path file) {
+    String name = file.getFileName().toString();
+    return Integer.parseInt(
+        name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+  }
+
+  /** A mapped segment, read in place. Strings are decoded the first time they're needed. */
+  private static final class Segment {
+    private final MappedByteBuffer buffer;
+
+    /** Where each string of the dictionary starts, at its length. */
+    private final int[] stringOffsets;
+
+    private final String[] strings;
+
+    private final int gameCount;
+
+    private final int rowCount;
+
+    private final int gamesOffset;
+
+    private final int rowsOffset;
+
+    private Segment(MappedByteBuffer buffer, int[] stringOffsets, int gameCount, int rowCount) {
+      this.buffer = buffer;
+      this.stringOffsets = stringOffsets;
+      this.strings = new String[stringOffsets.length];
+      this.gameCount = gameCount;
+      this.rowCount = rowCount;
+      this.gamesOffset = buffer.position();
+      this.rowsOffset = gamesOffset + gameCount * 4 * Integer.BYTES;
+    }
+
+    static Segment map(Path file) throws IOException {
+      MappedByteBuffer buffer;
+
+      try (FileChannel channel = FileChannel.open(file)) {
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      }
+
+      if (buffer.getInt() != MAGIC || buffer.getInt() != StatSchema.FINGERPRINT) {
+        throw new IOException(file + " is not a stat segment for this stat schema");
+      }
+
+      int[] stringOffsets = new int[buffer.getInt()];
+      int gameCount = buffer.getInt();
+      int rowCount = buffer.getInt();
+
+      for (int i = 0; i < stringOffsets.length; i++) {
+        stringOffsets[i] = buffer.position();
+        int length = buffer.getInt();
+
+        if (length < 0 || length > buffer.remaining()) {
+          throw new IOException(file + " is truncated");
+        }
+
+        buffer.position(buffer.position() + length);
+      }
+
+      buffer.position((buffer.position() + Integer.BYTES - 1) / Integer.BYTES * Integer.BYTES);
+      // checked in longs, so that offsets within the segment can then be computed as ints
+      long end =
+          buffer.position()
+              + (long) gameCount * 4 * Integer.BYTES
+              + (long) rowCount * (4 + StatSchema.SIZE) * Integer.BYTES;
+
+      if (gameCount < 0 || rowCount < 0 || end > buffer.capacity()) {
+        throw new IOException(file + " is truncated");
+      }
+
+      return new Segment(buffer, stringOffsets, gameCount, rowCount);
+    }
+
+    String string(int index) {
+      if (strings[index] == null) {
+        strings[index] = SymbolTable.SHARED.intern(decode(index));
+      }
+
+      return strings[index];
+    }
+
+    private String decode(int index) {
+      byte[] bytes = new byte[buffer.getInt(stringOffsets[index])];
+      buffer.get(stringOffsets[index] + Integer.BYTES, bytes);
+      return new String(bytes, UTF_8);
+    }
+
+    private int gameInt(int game, int field) {
+      return buffer.getInt(gamesOffset + (game * 4 + field) * Integer.BYTES);
+    }
+
+    /** Not interned, unlike the other strings, since nothing else shares it. */
+    String gameUri(int game) {
+      return decode(gameInt(game, 0));
+    }
+
+    int gameSeason(int game) {
+      return LocalDate.ofEpochDay(gameInt(game, 1)).getYear();
+    }
+
+    Matchup matchup(int game) {
+      return new Matchup(
+          LocalDate.ofEpochDay(gameInt(game, 1)),
+          string(gameInt(game, 2)),
+          string(gameInt(game, 3)));
+    }
+
+    String gameHome(int game) {
+      return string(gameInt(game, 3));
+    }
+
+    /** Reads row attribute {@code column}: 0 game, 1 player ID, 2 name, 3 team. */
+    int rowInt(int column, int row) {
+      return buffer.getInt(rowsOffset + (column * rowCount + row) * Integer.BYTES);
+    }
+
+    int game(int row) {
+      return rowInt(0, row);
+    }
+
+    float stat(int slot, int row) {
+      return buffer.getFloat(rowsOffset + ((4 + slot) * rowCount + row) * Float.BYTES);
+    }
+  }
+
+  /** A reusable view of one row of a segment. */
+  private static final class SegmentRow implements PlayerGame {
+    private final Segment segment;
+
+    /** {@link SymbolTable} handles of the segment's strings, looked up as they're needed. */
+    private final int[] handles;
+
+    private final int[] gameSeasons;
+
+    private int row;
+
+    SegmentRow(Segment segment) {
+      this.segment = segment;
+      this.handles = new int[segment.stringOffsets.length];
+      Arrays.fill(handles, -1);
+      this.gameSeasons = new int[segment.gameCount];
+
+      for (int game = 0; game < segment.gameCount; game++) {
+        gameSeasons[game] = segment.gameSeason(game);
+      }
+    }
+
+    SegmentRow at(int row) {
+      this.row = row;
+      return this;
+    }
+
+    private int handle(int string) {
+      if (handles[string] < 0) {
+        handles[string] = SymbolTable.SHARED.handle(segment.string(string));
+      }
+
+      return handles[string];
+    }
+
+    @Override
+    public int playerHandle() {
+      return handle(segment.rowInt(1, row));
+    }
+
+    @Override
+    public String playerName() {
+      return segment.string(segment.rowInt(2, row));
+    }
+
+    @Override
+    public int teamHandle() {
+      int team = segment.rowInt(3, row);
+      return team < 0 ? -1 : handle(team);
+    }
+
+    @Override
+    public String team() {
+      int team = segment.rowInt(3, row);
+      return team < 0 ? null : segment.string(team);
+    }
+
+    @Override
+    public int season() {
+      return gameSeasons[segment.game(row)];
+    }
+
+    @Override
+    public String venue() {
+      return segment.gameHome(segment.game(row));
+    }
+
+    @Override
+    public void addStatsTo(StatLine sums) {
+      for (int slot = 0; slot < StatSchema.SIZE; slot++) {
+        float value = segment.stat(slot, row);
+
+        if (!Float.isNaN(value)) {
+          sums.add(slot, value);
+        }
+      }
+    }
+  }
+}
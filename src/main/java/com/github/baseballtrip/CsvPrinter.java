@@ -1,34 +1,78 @@
 package com.github.baseballtrip;
 
-import java.io.PrintWriter;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Iterator;
 
+/**
+ * Writes rows as quoted CSV as they're produced. Output goes through a large buffer and is only
+ * flushed once all rows have been written, or when {@link #flush} is called.
+ */
 public class CsvPrinter {
-  private final PrintWriter output;
+  private static final int BUFFER_SIZE = 1 << 16;
 
-  public CsvPrinter(PrintWriter output) {
-    this.output = output;
+  private static final String LINE_SEPARATOR = System.lineSeparator();
+
+  private final Writer output;
+
+  public CsvPrinter(Writer output) {
+    this.output =
+        output instanceof BufferedWriter ? output : new BufferedWriter(output, BUFFER_SIZE);
   }
 
-  public void printCsv(String[][] data) {
-    for (String[] row : data) {
+  public void printCsv(String[][] data) throws IOException {
+    printRows(Arrays.asList(data).iterator());
+  }
 
-      for (int i = 0; i < row.length; i++) {
-        if (i > 0) {
-          output.print(",");
-        }
+  /** Prints every remaining row, then flushes. */
+  public void printRows(Iterator<String[]> rows) throws IOException {
+    try (Metrics.StageTimer timer = Metrics.start(Metrics.Stage.PRINT)) {
+      while (rows.hasNext()) {
+        timer.addBytes(printRow(rows.next()));
+      }
+
+      output.flush();
+    }
+  }
 
-        output.print('"');
-        output.print(escape(row[i]));
-        output.print('"');
+  /** Prints one row without flushing, returning the number of characters written. */
+  public int printRow(String[] row) throws IOException {
+    int written = 0;
+
+    for (int i = 0; i < row.length; i++) {
+      if (i > 0) {
+        output.write(',');
+        written++;
       }
 
-      output.println();
+      written += printQuoted(row[i]);
     }
 
+    output.write(LINE_SEPARATOR);
+    return written + LINE_SEPARATOR.length();
+  }
+
+  public void flush() throws IOException {
     output.flush();
   }
 
-  private static String escape(String value) {
-    return value.replace("\"", "\"\"");
+  /** Doubles any quotes in the value, without copying it when there are none. */
+  private int printQuoted(String value) throws IOException {
+    output.write('"');
+    int start = 0;
+    int written = value.length() + 2;
+
+    for (int quote = value.indexOf('"'); quote >= 0; quote = value.indexOf('"', start)) {
+      output.write(value, start, quote + 1 - start);
+      output.write('"');
+      start = quote + 1;
+      written++;
+    }
+
+    output.write(value, start, value.length() - start);
+    output.write('"');
+    return written;
   }
 }
@@ -0,0 +1,156 @@
+package com.github.baseballtrip;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hashing;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Optional;
+
+/**
+ * Stores each parsed {@link Boxscore} in its own compact binary file, keyed by a hash of the URI.
+ * Every file is stamped with the parser version that produced it, so that a change to {@link
+ * BaseballReferenceScraper} invalidates stale results instead of silently reusing them. Stats are
+ * written by {@link StatSchema} slot, so files also record the schema fingerprint.
+ */
+class DiskBoxscoreStore implements BoxscoreStore {
+  private static final int MAGIC = 0x42585333; // "BXS3"
+
+  private static final String STORE_FILE_SUFFIX = ".box";
+
+  private final Path storeDir;
+
+  private final int parserVersion;
+
+  public DiskBoxscoreStore(Path storeDir, int parserVersion) throws IOException {
+    this.storeDir = Files.createDirectories(storeDir);
+    this.parserVersion = parserVersion;
+  }
+
+  @Override
+  public Optional<Boxscore> load(URI uri) throws IOException {
+    try (DataInputStream input =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(storeFile(uri))))) {
+      if (input.readInt() != MAGIC
+          || input.readInt() != parserVersion
+          || input.readInt() != StatSchema.FINGERPRINT
+          || !input.readUTF().equals(uri.toString())) {
+        return Optional.empty();
+      }
+
+      return Optional.of(readBoxscore(input));
+    } catch (NoSuchFileException e) {
+      return Optional.empty();
+    }
+  }
+
+  @Override
+  public void save(URI uri, Boxscore boxscore) throws IOException {
+    Path file = storeFile(uri);
+    Path tempFile = Files.createTempFile(storeDir, file.getFileName().toString(), ".tmp");
+
+    try (DataOutputStream output =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+      output.writeInt(MAGIC);
+      output.writeInt(parserVersion);
+      output.writeInt(StatSchema.FINGERPRINT);
+      output.writeUTF(uri.toString());
+      writeBoxscore(boxscore, output);
+    }
+
+    Files.move(tempFile, file, ATOMIC_MOVE, REPLACE_EXISTING);
+  }
+
+  private Path storeFile(URI uri) {
+    return storeDir.resolve(
+        Hashing.sha256().hashString(uri.toString(), UTF_8) + STORE_FILE_SUFFIX);
+  }
+
+  /** Writes a boxscore in the same format as the store, for other files that hold boxscores. */
+  static void writeBoxscore(Boxscore boxscore, DataOutput output) throws IOException {
+    writeMatchup(boxscore.matchup, output);
+    output.writeInt(boxscore.stats.size());
+
+    for (PlayerStat stat : boxscore.stats) {
+      writePlayerStat(stat, output);
+    }
+  }
+
+  static Boxscore readBoxscore(DataInput input) throws IOException {
+    Matchup matchup = readMatchup(input);
+    int statCount = input.readInt();
+    ImmutableList.Builder<PlayerStat> stats = ImmutableList.builderWithExpectedSize(statCount);
+
+    for (int i = 0; i < statCount; i++) {
+      stats.add(readPlayerStat(input));
+    }
+
+    return new Boxscore(matchup, stats.build());
+  }
+
+  static void writeMatchup(Matchup matchup, DataOutput output) throws IOException {
+    output.writeLong(matchup.date.toEpochDay());
+    output.writeUTF(matchup.away);
+    output.writeUTF(matchup.home);
+  }
+
+  static Matchup readMatchup(DataInput input) throws IOException {
+    return new Matchup(LocalDate.ofEpochDay(input.readLong()), input.readUTF(), input.readUTF());
+  }
+
+  static void writePlayerStat(PlayerStat stat, DataOutput output) throws IOException {
+    output.writeUTF(stat.playerId);
+    output.writeUTF(stat.playerName);
+    output.writeUTF(stat.team == null ? "" : stat.team);
+    writeStatLine(stat.statLine, output);
+  }
+
+  static PlayerStat readPlayerStat(DataInput input) throws IOException {
+    String playerId = input.readUTF();
+    String playerName = input.readUTF();
+    String team = input.readUTF();
+    return new PlayerStat(playerId, playerName, team.isEmpty() ? null : team, readStatLine(input));
+  }
+
+  /** Writes only the recorded slots, as (slot, value) pairs. */
+  private static void writeStatLine(StatLine statLine, DataOutput output) throws IOException {
+    int count = 0;
+
+    for (int i = 0; i < StatSchema.SIZE; i++) {
+      count += statLine.has(i) ? 1 : 0;
+    }
+
+    output.writeShort(count);
+
+    for (int i = 0; i < StatSchema.SIZE; i++) {
+      if (statLine.has(i)) {
+        output.writeShort(i);
+        output.writeFloat(statLine.get(i));
+      }
+    }
+  }
+
+  private static StatLine readStatLine(DataInput input) throws IOException {
+    StatLine result = new StatLine();
+    int count = input.readShort();
+
+    for (int i = 0; i < count; i++) {
+      result.set(input.readShort(), input.readFloat());
+    }
+
+    return result;
+  }
+}
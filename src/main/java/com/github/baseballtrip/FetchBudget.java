@@ -0,0 +1,24 @@
+package com.github.baseballtrip;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/** A request budget shared by every fetcher that draws on it, on top of their own rate limits. */
+interface FetchBudget {
+  FetchBudget UNLIMITED =
+      new FetchBudget() {
+        @Override
+        public double acquire() {
+          return 0;
+        }
+
+        @Override
+        public void pause(Duration duration) {}
+      };
+
+  /** Waits for a request to be allowed, returning the time spent waiting in seconds. */
+  double acquire() throws IOException, InterruptedException;
+
+  /** Holds off every request against this budget for {@code duration}, such as after a 429. */
+  void pause(Duration duration) throws IOException;
+}
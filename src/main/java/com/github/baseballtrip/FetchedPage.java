@@ -0,0 +1,15 @@
+package com.github.baseballtrip;
+
+import java.io.InputStream;
+
+/** A page's UTF-8 body, which the caller must close, along with its validators. */
+final class FetchedPage {
+  final InputStream body;
+
+  final PageValidators validators;
+
+  FetchedPage(InputStream body, PageValidators validators) {
+    this.body = body;
+    this.validators = validators;
+  }
+}
@@ -0,0 +1,78 @@
+package com.github.baseballtrip;
+
+import com.google.common.collect.ImmutableSet;
+import java.net.URI;
+import java.time.LocalDate;
+
+/**
+ * Selects which games are aggregated.
+ *
+ * <p>The date range, seasons and home team are all encoded in the boxscore URI, so games they rule
+ * out are dropped before anything is fetched. The away team is only known from the page, so it's
+ * checked against the matchup as soon as the linescore is parsed, before any stat tables.
+ */
+class GameFilter {
+  static final GameFilter ALL =
+      new GameFilter(null, null, ImmutableSet.of(), ImmutableSet.of(), ImmutableSet.of());
+
+  private final LocalDate from;
+
+  private final LocalDate to;
+
+  private final ImmutableSet<Integer> seasons;
+
+  private final ImmutableSet<String> homeTeams;
+
+  private final ImmutableSet<String> awayTeams;
+
+  /**
+   * {@code from} and {@code to} are inclusive and may be null. Empty sets match everything. Home
+   * teams are the codes used in boxscore URIs, and away teams are the codes used in linescores.
+   */
+  public GameFilter(
+      LocalDate from,
+      LocalDate to,
+      ImmutableSet<Integer> seasons,
+      ImmutableSet<String> homeTeams,
+      ImmutableSet<String> awayTeams) {
+    this.from = from;
+    this.to = to;
+    this.seasons = seasons;
+    this.homeTeams = upperCase(homeTeams);
+    this.awayTeams = upperCase(awayTeams);
+  }
+
+  private static ImmutableSet<String> upperCase(ImmutableSet<String> teams) {
+    return teams.stream().map(String::toUpperCase).collect(ImmutableSet.toImmutableSet());
+  }
+
+  /**
+   * Whether the game at {@code uri} could match, judging by the URI alone. URIs that aren't
+   * boxscores are let through, so that they fail when they're parsed rather than silently.
+   */
+  public boolean matches(URI uri) {
+    if (from == null && to == null && seasons.isEmpty() && homeTeams.isEmpty()) {
+      return true;
+    }
+
+    LocalDate date;
+    String homeTeam;
+
+    try {
+      date = BaseballReferenceScraper.parseGameDate(uri);
+      homeTeam = BaseballReferenceScraper.parseHomeTeamCode(uri);
+    } catch (IllegalArgumentException e) {
+      return true;
+    }
+
+    return (from == null || !date.isBefore(from))
+        && (to == null || !date.isAfter(to))
+        && (seasons.isEmpty() || seasons.contains(date.getYear()))
+        && (homeTeams.isEmpty() || homeTeams.contains(homeTeam.toUpperCase()));
+  }
+
+  /** Whether the game matches, once its linescore has been parsed. */
+  public boolean matches(Matchup matchup) {
+    return awayTeams.isEmpty() || awayTeams.contains(matchup.away.toUpperCase());
+  }
+}
@@ -0,0 +1,76 @@
+package com.github.baseballtrip;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.primitives.Ints;
+import java.util.Arrays;
+
+/**
+ * Running stat sums and seasons for one group of a {@link Rollup}, such as a player or a team in a
+ * season, updated as each boxscore is parsed.
+ */
+public class GroupTotals {
+  /** The values of the rollup's label columns, e.g. the player's name. */
+  public final ImmutableList<String> labels;
+
+  private final StatLine sums = new StatLine();
+
+  /** The distinct seasons seen, sorted, in the first {@link #seasonCount} elements. */
+  private int[] seasons = new int[1];
+
+  private int seasonCount;
+
+  private int games;
+
+  public GroupTotals(ImmutableList<String> labels) {
+    this.labels = labels;
+  }
+
+  public void add(PlayerGame game) {
+    game.addStatsTo(sums);
+    addWithoutStats(game);
+  }
+
+  /** Counts {@code game} and its season, leaving its stats to {@link #addStat}. */
+  void addWithoutStats(PlayerGame game) {
+    addSeason(game.season());
+    games++;
+  }
+
+  void addStat(int slot, float value) {
+    sums.add(slot, value);
+  }
+
+  private void addSeason(int season) {
+    int index = Arrays.binarySearch(seasons, 0, seasonCount, season);
+
+    if (index >= 0) {
+      return;
+    }
+
+    if (seasonCount == seasons.length) {
+      seasons = Arrays.copyOf(seasons, seasonCount * 2);
+    }
+
+    int insertAt = -index - 1;
+    System.arraycopy(seasons, insertAt, seasons, insertAt + 1, seasonCount - insertAt);
+    seasons[insertAt] = season;
+    seasonCount++;
+  }
+
+  /** How many player-games were added, which changes whenever the totals do. */
+  public int games() {
+    return games;
+  }
+
+  /** A copy of the stat sums so far, including derived stats. */
+  public StatLine sumsWithDerivedStats() {
+    StatLine result = sums.copy();
+    result.addDerivedStats();
+    return result;
+  }
+
+  public ImmutableSortedSet<Integer> seasons() {
+    return ImmutableSortedSet.copyOf(Ints.asList(seasons).subList(0, seasonCount));
+  }
+}
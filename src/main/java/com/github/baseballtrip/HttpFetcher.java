@@ -1,8 +1,38 @@
 package com.github.baseballtrip;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.util.Optional;
 
 interface HttpFetcher {
   String fetch(URI uri) throws IOException;
+
+  /**
+   * Fetches the page as UTF-8 bytes, which the caller must close. Fetchers that can avoid building
+   * the whole page as a {@code String} should override this.
+   */
+  default InputStream fetchStream(URI uri) throws IOException {
+    return new ByteArrayInputStream(fetch(uri).getBytes(UTF_8));
+  }
+
+  /**
+   * Fetches the page unless it's unchanged since it was served with {@code validators}, in which
+   * case this returns empty. Fetchers that can't make conditional requests always fetch the page.
+   */
+  default Optional<FetchedPage> fetchIfModified(URI uri, PageValidators validators)
+      throws IOException {
+    return Optional.of(new FetchedPage(fetchStream(uri), PageValidators.NONE));
+  }
+
+  /**
+   * Fetches the page again only if it may have changed since this fetcher last served it, returning
+   * empty if it hasn't. Fetchers that don't remember earlier fetches always fetch the page.
+   */
+  default Optional<InputStream> fetchIfChanged(URI uri) throws IOException {
+    return Optional.of(fetchStream(uri));
+  }
 }
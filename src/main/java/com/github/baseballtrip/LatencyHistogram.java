@@ -0,0 +1,87 @@
+package com.github.baseballtrip;
+
+import static java.lang.Long.numberOfLeadingZeros;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread-safe histogram of nanosecond latencies. Values are counted in log-linear buckets (32
+ * per power of two), so percentiles are accurate to about 3% and recording never allocates.
+ */
+final class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 5;
+
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(64 * SUB_BUCKETS);
+
+  private final LongAdder count = new LongAdder();
+
+  private final LongAdder totalNanos = new LongAdder();
+
+  private final AtomicLong maxNanos = new AtomicLong();
+
+  void record(long nanos) {
+    long value = Math.max(nanos, 0);
+    buckets.incrementAndGet(bucketOf(value));
+    count.increment();
+    totalNanos.add(value);
+    maxNanos.accumulateAndGet(value, Math::max);
+  }
+
+  long count() {
+    return count.sum();
+  }
+
+  long totalNanos() {
+    return totalNanos.sum();
+  }
+
+  long maxNanos() {
+    return maxNanos.get();
+  }
+
+  /** Returns the upper bound of the bucket holding the given percentile (0-100), or 0 if empty. */
+  long percentileNanos(double percentile) {
+    long total = count();
+
+    if (total == 0) {
+      return 0;
+    }
+
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+    long seen = 0;
+
+    for (int i = 0; i < buckets.length(); i++) {
+      seen += buckets.get(i);
+
+      if (seen >= rank) {
+        return Math.min(upperBoundOf(i), maxNanos());
+      }
+    }
+
+    return maxNanos();
+  }
+
+  private static int bucketOf(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+
+    int shift = 63 - numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+    return ((shift + 1) << SUB_BUCKET_BITS) + subBucket;
+  }
+
+  private static long upperBoundOf(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+
+    int shift = (bucket >>> SUB_BUCKET_BITS) - 1;
+    long subBucket = bucket & (SUB_BUCKETS - 1);
+    return ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+  }
+}
@@ -0,0 +1,101 @@
+package com.github.baseballtrip;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A map from long keys that keeps its values in the order they were added, like a {@link
+ * java.util.LinkedHashMap}, but without boxing the keys, so lookups allocate nothing. Entries can't
+ * be replaced or removed.
+ *
+ * <p>Not thread-safe, though any number of threads may look keys up while nothing is added.
+ */
+final class LongMap<V> {
+  private long[] keys = new long[8];
+
+  private Object[] values = new Object[8];
+
+  private int size;
+
+  /** Open-addressed hash slots, each holding 1 + the index of an entry, or 0 if it's empty. */
+  private int[] slots = new int[16];
+
+  /** The value for {@code key}, or null if it hasn't been added. */
+  @SuppressWarnings("unchecked")
+  V get(long key) {
+    int mask = slots.length - 1;
+
+    for (int slot = hash(key) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+      int entry = slots[slot] - 1;
+
+      if (keys[entry] == key) {
+        return (V) values[entry];
+      }
+    }
+
+    return null;
+  }
+
+  /** Adds {@code key}, which must not have been added already. */
+  void put(long key, V value) {
+    if (size == keys.length) {
+      keys = Arrays.copyOf(keys, size * 2);
+      values = Arrays.copyOf(values, size * 2);
+    }
+
+    keys[size] = key;
+    values[size] = value;
+    size++;
+
+    // keeps the slots at most half full, so probes stay short
+    if (size * 2 > slots.length) {
+      slots = new int[slots.length * 2];
+
+      for (int entry = 0; entry < size; entry++) {
+        insert(entry);
+      }
+    } else {
+      insert(size - 1);
+    }
+  }
+
+  private void insert(int entry) {
+    int mask = slots.length - 1;
+    int slot = hash(keys[entry]) & mask;
+
+    while (slots[slot] != 0) {
+      slot = (slot + 1) & mask;
+    }
+
+    slots[slot] = entry + 1;
+  }
+
+  private static int hash(long key) {
+    long mixed = key * 0x9e3779b97f4a7c15L;
+    return (int) (mixed ^ (mixed >>> 32));
+  }
+
+  int size() {
+    return size;
+  }
+
+  /** A read-only view of the values in the order they were added, which sees later additions. */
+  List<V> values() {
+    return new AbstractList<V>() {
+      @Override
+      @SuppressWarnings("unchecked")
+      public V get(int index) {
+        checkElementIndex(index, size);
+        return (V) values[index];
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+}
@@ -1,41 +1,251 @@
 package com.github.baseballtrip;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.io.Files.readLines;
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
 
+import com.beust.jcommander.IStringConverter;
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
+import com.beust.jcommander.ParameterException;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import java.io.File;
+import java.io.FileDescriptor;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.io.PrintWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Clock;
 import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
 
 public class Main {
 
   @Parameter(
       names = "--inFile",
-      description = "List of baseball-reference URLs to scrape, separated by newlines.",
-      required = true)
+      description =
+          "List of baseball-reference URLs to scrape, separated by newlines. Required unless"
+              + " --importFrom or --fromStatStore is specified.")
   private File inFile;
 
+  @Parameter(
+      names = "--importFrom",
+      description =
+          "Directory or zip archive of saved boxscore pages to load instead of --inFile. Pages"
+              + " must keep the file names they were published under, e.g. CHA200908020.shtml.")
+  private File importFrom;
+
   @Parameter(
       names = "--outFile",
       description = "Location to output CSV. Outputs to stdout if not specified.")
   private File outFile;
 
+  @Parameter(
+      names = "--from",
+      description = "Only include games on or after this date, as yyyy-mm-dd.",
+      converter = LocalDateConverter.class)
+  private LocalDate from;
+
+  @Parameter(
+      names = "--to",
+      description = "Only include games on or before this date, as yyyy-mm-dd.",
+      converter = LocalDateConverter.class)
+  private LocalDate to;
+
+  @Parameter(names = "--season", description = "Only include games from this season. Repeatable.")
+  private List<Integer> seasons = new ArrayList<>();
+
+  @Parameter(
+      names = "--team",
+      description =
+          "Only include games at this home team, as coded in boxscore URLs (e.g. BOS, CHA)."
+              + " Repeatable.")
+  private List<String> homeTeams = new ArrayList<>();
+
+  @Parameter(
+      names = "--awayTeam",
+      description =
+          "Only include games against this visiting team, as coded in linescores (e.g. NYY, CHW)."
+              + " Repeatable.")
+  private List<String> awayTeams = new ArrayList<>();
+
+  @Parameter(
+      names = "--rollup",
+      description =
+          "Also total stats by player-season, player-team, team-season or venue, each written to"
+              + " <rollup>.csv in --rollupDir. Repeatable.",
+      converter = RollupConverter.class)
+  private List<Rollup> rollups = new ArrayList<>();
+
+  @Parameter(names = "--rollupDir", description = "Directory --rollup writes its CSVs to")
+  private File rollupDir = new File(".");
+
   @Parameter(names = "--httpTimeout", description = "HTTP timeout in seconds")
   private int httpTimeoutSeconds = 4;
 
+  @Parameter(
+      names = "--maxRequestsPerMinute",
+      description =
+          "Requests per minute to each host once it's responding normally. Slows down"
+              + " automatically when the site throttles requests.")
+  private double maxRequestsPerMinute = BaseballReferenceFetcher.MAX_REQUESTS_PER_MINUTE;
+
+  @Parameter(
+      names = "--sharedBudgetFile",
+      description =
+          "Runs on this machine pointing at the same file share one request budget of"
+              + " --maxRequestsPerMinute between them. Each run has its own budget if not"
+              + " specified.")
+  private File sharedBudgetFile;
+
+  @Parameter(
+      names = "--cacheDir",
+      description =
+          "Directory to cache fetched pages and parsed boxscores in. Runs sharing a cache also"
+              + " share downloads. Nothing is cached if not specified.")
+  private File cacheDir;
+
+  @Parameter(names = "--cacheMaxMegabytes", description = "Maximum size of the page cache")
+  private long cacheMaxMegabytes = 1024;
+
+  @Parameter(
+      names = "--offline",
+      description = "Only read pages from --cacheDir. Fails if a page is not cached.")
+  private boolean offline = false;
+
+  @Parameter(
+      names = "--revalidateDays",
+      description =
+          "Cached games played within this many days are revalidated with a conditional request,"
+              + " in case of stat corrections. 0 never revalidates.")
+  private int revalidateDays = 3;
+
+  @Parameter(
+      names = "--fetchConcurrency",
+      description = "Maximum number of pages to fetch at once. Requests are still rate limited.")
+  private int fetchConcurrency = 4;
+
+  @Parameter(
+      names = "--parseThreads",
+      description = "Threads to parse pages on. Defaults to the number of processors.")
+  private Integer parseThreads;
+
+  @Parameter(
+      names = "--formatThreads",
+      description =
+          "Threads to derive and format the totals on once all games are loaded. The output is"
+              + " the same for any number. Rollups spilled by --aggregateMaxMegabytes are formatted"
+              + " on one thread, a partition at a time.")
+  private int formatThreads = 1;
+
+  @Parameter(
+      names = "--statStore",
+      description =
+          "Directory to keep every player-game line in, so totals can be recomputed later with"
+              + " --fromStatStore. Each run adds the games it loaded that aren't stored yet.")
+  private File statStoreDir;
+
+  @Parameter(
+      names = "--fromStatStore",
+      description =
+          "Total the games in --statStore that match the filters, instead of loading --inFile.")
+  private boolean fromStatStore = false;
+
+  @Parameter(
+      names = "--journal",
+      description =
+          "Journal boxscores here as they complete. Rerunning with the same journal skips the"
+              + " games a failed run already finished.")
+  private File journalFile;
+
+  @Parameter(
+      names = "--errorFile",
+      description =
+          "Append games that fail to fetch or parse here and carry on, instead of aborting the"
+              + " run.")
+  private File errorFile;
+
+  @Parameter(
+      names = "--metrics",
+      description =
+          "Print per-stage timings to stderr at the end of the run, and write them as JSON to"
+              + " --metricsFile.")
+  private boolean metrics = false;
+
+  @Parameter(names = "--metricsFile", description = "Where --metrics writes its JSON report")
+  private File metricsFile = new File("metrics.json");
+
+  @Parameter(
+      names = "--aggregateMaxMegabytes",
+      description =
+          "Heap to total games in. Past it, player lines are spilled to --spillDir and totaled"
+              + " one partition at a time, with the same output. Unbounded if not specified. Can't"
+              + " be combined with --statStore or --journal, whose games aren't budgeted.")
+  private Long aggregateMaxMegabytes;
+
+  @Parameter(names = "--spillDir", description = "Directory --aggregateMaxMegabytes spills to")
+  private File spillDir = new File(System.getProperty("java.io.tmpdir"));
+
+  @Parameter(
+      names = "--watch",
+      description =
+          "After writing the CSVs, keep watching --inFile. URLs added to it are loaded and the"
+              + " CSVs rewritten, reformatting only the rows whose totals changed. Requires"
+              + " --outFile.")
+  private boolean watch = false;
+
+  @Parameter(
+      names = "--serve",
+      description =
+          "Instead of writing CSVs, load the games and answer JSON queries for player totals on"
+              + " this port. More games can be posted to it while it runs.")
+  private Integer servePort;
+
   @Parameter(names = "--help", help = true)
   private boolean help = false;
 
+  /** Opened by the first load, and kept open for every later one. */
+  private BoxscoreJournal journal;
+
+  /**
+   * Built by the first load from the site and reused by every later one, so that the rate limits
+   * it has adapted to carry over.
+   */
+  private HttpFetcher siteFetcher;
+
+  private Predicate<URI> siteRevalidation;
+
+  /** Rows kept between rewrites of the CSVs by --watch. */
+  private final EnumMap<Rollup, CachedCsvRows> cachedRows = new EnumMap<>(Rollup.class);
+
   public static void main(String[] args) throws IOException {
     Main main = new Main();
     JCommander jCommander =
@@ -50,24 +260,472 @@ public class Main {
   }
 
   public void run() throws IOException {
-    List<Boxscore> boxscores =
-        parseAll(loadBaseballReferenceUrisToScrape(inFile), Duration.ofSeconds(httpTimeoutSeconds));
+    try (Metrics.StageTimer timer = Metrics.start(Metrics.Stage.RUN)) {
+      aggregateAndPrint();
+    } finally {
+      // --serve keeps loading games after this returns, into the same journal
+      if (journal != null && servePort == null) {
+        journal.close();
+      }
+    }
 
-    OutputStream outputStream = outFile == null ? System.out : new FileOutputStream(outFile);
-    CsvPrinter printer = new CsvPrinter(new PrintWriter(outputStream, true, UTF_8));
-    printer.printCsv(new BaseballCsvFormatter().toCsvCells(boxscores));
+    if (metrics) {
+      System.err.print(Metrics.summary());
+      Metrics.writeJson(metricsFile.toPath());
+    }
   }
 
-  private static List<Boxscore> parseAll(Set<URI> uris, Duration httpTimeout) throws IOException {
-    ArrayList<Boxscore> result = new ArrayList<>();
-    BaseballReferenceScraper scraper =
-        new BaseballReferenceScraper(new BaseballReferenceFetcher(httpTimeout));
+  private void aggregateAndPrint() throws IOException {
+    if (servePort != null) {
+      serve();
+      return;
+    }
 
-    for (URI uri : uris) {
-      result.add(scraper.parseBoxscore(uri));
+    if (aggregateMaxMegabytes != null) {
+      aggregateWithinBudgetAndPrint();
+      return;
     }
 
-    return result;
+    EnumSet<Rollup> allRollups = EnumSet.of(Rollup.PLAYER);
+    allRollups.addAll(rollups);
+    RollupAggregator aggregator = new RollupAggregator(allRollups);
+    GameFilter filter = buildFilter();
+    checkArgument(
+        !watch || (inFile != null && importFrom == null && !fromStatStore && outFile != null),
+        "--watch requires --inFile and --outFile, and can't be combined with --importFrom or"
+            + " --fromStatStore");
+
+    if (fromStatStore) {
+      checkArgument(statStoreDir != null, "--fromStatStore requires --statStore");
+      new ColumnarStatStore(statStoreDir.toPath())
+          .aggregate(filter::matches, filter::matches, aggregator);
+    } else if (importFrom != null) {
+      try (SavedPageFetcher savedPages = SavedPageFetcher.open(importFrom.toPath())) {
+        loadGames(
+            savedPages.boxscoreUris(), savedPages, filter, (uri, game) -> aggregator.add(game));
+      }
+    } else {
+      checkArgument(inFile != null, "--inFile is required");
+      Set<URI> uris = loadBaseballReferenceUrisToScrape(inFile);
+      loadGames(uris, null, filter, (uri, game) -> aggregator.add(game));
+
+      if (watch) {
+        print((rollup, pool) -> formatRows(rollup, aggregator, pool));
+        watch(aggregator, filter, new HashSet<>(uris));
+        return;
+      }
+    }
+
+    print((rollup, pool) -> formatRows(rollup, aggregator, pool));
+  }
+
+  /**
+   * Totals the games with a {@link SpillingAggregator}, which spills them to --spillDir once they
+   * take up --aggregateMaxMegabytes.
+   */
+  private void aggregateWithinBudgetAndPrint() throws IOException {
+    // the stat store and journal hold games in memory outside the budget
+    checkArgument(
+        statStoreDir == null && journalFile == null && !watch,
+        "--aggregateMaxMegabytes can't be combined with --statStore, --journal or --watch");
+    EnumSet<Rollup> allRollups = EnumSet.of(Rollup.PLAYER);
+    allRollups.addAll(rollups);
+
+    try (SpillingAggregator aggregator =
+        new SpillingAggregator(
+            allRollups, spillDir.toPath(), aggregateMaxMegabytes * 1024 * 1024)) {
+      loadInput(buildFilter(), (uri, game) -> aggregator.add(game));
+      aggregator.finish();
+
+      if (aggregator.spilled()) {
+        System.err.printf(
+            "Games took up more than %d MB, so they were totaled on disk%n",
+            aggregateMaxMegabytes);
+      }
+
+      print((rollup, pool) -> aggregator.rows(rollup, pool));
+    }
+  }
+
+  /** Loads the games from --importFrom if given, and otherwise from --inFile. */
+  private void loadInput(GameFilter filter, BoxscorePipeline.Sink aggregate) throws IOException {
+    if (importFrom != null) {
+      try (SavedPageFetcher savedPages = SavedPageFetcher.open(importFrom.toPath())) {
+        loadGames(savedPages.boxscoreUris(), savedPages, filter, aggregate);
+      }
+    } else {
+      checkArgument(inFile != null, "--inFile is required");
+      loadGames(loadBaseballReferenceUrisToScrape(inFile), null, filter, aggregate);
+    }
+  }
+
+  /**
+   * Loads the URIs added to --inFile each time it changes, and rewrites the CSVs. {@code seen} are
+   * the URIs already loaded or filtered out. Games that fail to load are retried the next time the
+   * file changes, unless they're quarantined to --errorFile.
+   */
+  private void watch(RollupAggregator aggregator, GameFilter filter, Set<URI> seen)
+      throws IOException {
+    Path file = inFile.toPath().toAbsolutePath();
+
+    try (WatchService watcher = file.getFileSystem().newWatchService()) {
+      // editors often save by replacing the file, so watch its directory rather than the file
+      file.getParent().register(watcher, ENTRY_CREATE, ENTRY_MODIFY);
+      System.err.printf("Watching %s for new games%n", inFile);
+
+      while (true) {
+        WatchKey key;
+
+        try {
+          key = watcher.take();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+
+        boolean changed =
+            key.pollEvents().stream().anyMatch(event -> file.getFileName().equals(event.context()));
+        key.reset();
+
+        if (!changed || !Files.exists(file)) {
+          continue;
+        }
+
+        LinkedHashSet<URI> added = new LinkedHashSet<>(loadBaseballReferenceUrisToScrape(inFile));
+        added.removeAll(seen);
+
+        if (added.isEmpty()) {
+          continue;
+        }
+
+        Set<URI> loaded = new HashSet<>();
+
+        try {
+          loadGames(
+              added,
+              null,
+              filter,
+              (uri, game) -> {
+                aggregator.add(game);
+                loaded.add(uri);
+              });
+          seen.addAll(added);
+        } catch (IOException | RuntimeException e) {
+          // keeps the games that did load, and retries the rest when the file next changes
+          seen.addAll(loaded);
+          System.err.printf("Failed to load new games: %s%n", Throwables.getRootCause(e));
+        }
+
+        if (!loaded.isEmpty()) {
+          print((rollup, pool) -> formatRows(rollup, aggregator, pool));
+          System.err.printf(
+              "Added %d games; reformatted %d rows%n",
+              loaded.size(), cachedRows.get(Rollup.PLAYER).reformatted());
+        }
+      }
+    }
+  }
+
+  /** Loads the initial games into an index and answers queries on it until the process exits. */
+  private void serve() throws IOException {
+    checkArgument(
+        !fromStatStore && !watch && aggregateMaxMegabytes == null,
+        "--serve can't be combined with --fromStatStore, --watch or --aggregateMaxMegabytes");
+    EnumSet<Rollup> allRollups = EnumSet.of(Rollup.PLAYER);
+    allRollups.addAll(rollups);
+    PlayerIndex index = new PlayerIndex(new RollupAggregator(allRollups));
+    GameFilter filter = buildFilter();
+
+    if (importFrom != null) {
+      try (SavedPageFetcher savedPages = SavedPageFetcher.open(importFrom.toPath())) {
+        loadGames(savedPages.boxscoreUris(), savedPages, filter, index::add);
+      }
+    } else if (inFile != null) {
+      loadGames(loadBaseballReferenceUrisToScrape(inFile), null, filter, index::add);
+    }
+
+    // the server reports posted games that fail, so they're handed to it even if quarantined
+    QueryServer server =
+        new QueryServer(
+            index,
+            filter::matches,
+            (uris, sink) -> loadGames(uris, null, filter, sink, true),
+            servePort);
+    server.start();
+    System.err.printf("Serving %d players on port %d%n", index.size(), server.port());
+  }
+
+  private GameFilter buildFilter() {
+    return new GameFilter(
+        from,
+        to,
+        ImmutableSet.copyOf(seasons),
+        ImmutableSet.copyOf(homeTeams),
+        ImmutableSet.copyOf(awayTeams));
+  }
+
+  /**
+   * Loads {@code uris} from {@code savedPages} if given, and otherwise from the site, handing each
+   * game to {@code aggregate}. Games that fail go to --errorFile if it was given, and otherwise to
+   * {@code aggregate}.
+   */
+  private void loadGames(
+      Iterable<URI> uris,
+      SavedPageFetcher savedPages,
+      GameFilter filter,
+      BoxscorePipeline.Sink aggregate)
+      throws IOException {
+    loadGames(uris, savedPages, filter, aggregate, false);
+  }
+
+  /**
+   * Like {@link #loadGames(Iterable, SavedPageFetcher, GameFilter, BoxscorePipeline.Sink)}, but
+   * if {@code reportFailures}, games that fail go to {@code aggregate} as well as to --errorFile.
+   */
+  private void loadGames(
+      Iterable<URI> uris,
+      SavedPageFetcher savedPages,
+      GameFilter filter,
+      BoxscorePipeline.Sink aggregate,
+      boolean reportFailures)
+      throws IOException {
+    int threads = parseThreads == null ? Runtime.getRuntime().availableProcessors() : parseThreads;
+    // there's nothing to revalidate saved pages against
+    Predicate<URI> revalidate = savedPages == null ? siteRevalidation() : uri -> false;
+    BoxscoreJournal journal = openJournal();
+
+    try (ColumnarStatStore.SegmentWriter segment =
+        statStoreDir == null ? null : new ColumnarStatStore(statStoreDir.toPath()).newSegment()) {
+      BoxscoreStore store = buildBoxscoreStore();
+
+      if (journal != null) {
+        store = journal.replayingOver(store);
+      }
+
+      RunSink sink = new RunSink(aggregate, reportFailures, journal, segment);
+      // saved pages aren't rate limited, so read as many at once as can be parsed
+      new BoxscorePipeline(
+              savedPages == null ? siteFetcher() : savedPages,
+              store,
+              savedPages == null ? fetchConcurrency : threads,
+              threads,
+              revalidate,
+              filter::matches)
+          .run(Iterables.filter(uris, filter::matches), sink);
+
+      if (sink.failures > 0) {
+        System.err.printf("%d games failed to load; see %s%n", sink.failures, errorFile);
+      }
+    }
+  }
+
+  /** Which cached games to check with the site for stat corrections. */
+  private Predicate<URI> siteRevalidation() throws IOException {
+    if (siteRevalidation == null) {
+      // there's nothing to revalidate against offline
+      Predicate<URI> window =
+          new RevalidationWindow(offline ? 0 : revalidateDays, Clock.systemDefaultZone());
+      BoxscoreJournal journal = openJournal();
+      // a resumed run only fetches the games it hasn't finished
+      siteRevalidation = journal == null ? window : window.and(uri -> !journal.contains(uri));
+    }
+
+    return siteRevalidation;
+  }
+
+  private HttpFetcher siteFetcher() throws IOException {
+    if (siteFetcher == null) {
+      siteFetcher = buildFetcher(siteRevalidation());
+    }
+
+    return siteFetcher;
+  }
+
+  /** Opens --journal the first time it's needed, or returns null if it wasn't given. */
+  private BoxscoreJournal openJournal() throws IOException {
+    if (journal == null && journalFile != null) {
+      journal =
+          BoxscoreJournal.open(journalFile.toPath(), BaseballReferenceScraper.PARSER_VERSION);
+
+      if (journal.size() > 0) {
+        System.err.printf("Resuming with %d boxscores from %s%n", journal.size(), journalFile);
+      }
+    }
+
+    return journal;
+  }
+
+  /** Formats a rollup's CSV rows, on {@code pool} if it isn't null. */
+  private interface RowSource {
+    Iterator<String[]> rows(Rollup rollup, ForkJoinPool pool) throws IOException;
+  }
+
+  private void print(RowSource rowSource) throws IOException {
+    ForkJoinPool formatPool = formatThreads > 1 ? new ForkJoinPool(formatThreads) : null;
+
+    try {
+      for (Rollup rollup : rollups) {
+        if (rollup != Rollup.PLAYER) {
+          Files.createDirectories(rollupDir.toPath());
+          writeCsv(
+              new File(rollupDir, rollup.optionName + ".csv"),
+              rowSource.rows(rollup, formatPool));
+        }
+      }
+
+      if (outFile == null) {
+        // stdout is flushed but left open
+        Writer stdout = new OutputStreamWriter(new FileOutputStream(FileDescriptor.out), UTF_8);
+        new CsvPrinter(stdout).printRows(rowSource.rows(Rollup.PLAYER, formatPool));
+        return;
+      }
+
+      writeCsv(outFile, rowSource.rows(Rollup.PLAYER, formatPool));
+    } finally {
+      if (formatPool != null) {
+        formatPool.shutdown();
+      }
+    }
+  }
+
+  private Iterator<String[]> formatRows(
+      Rollup rollup, RollupAggregator aggregator, ForkJoinPool pool) {
+    if (watch) {
+      return cachedRows.computeIfAbsent(rollup, CachedCsvRows::new).rows(aggregator);
+    }
+
+    BaseballCsvFormatter formatter = new BaseballCsvFormatter();
+    return pool == null
+        ? formatter.toCsvRows(rollup, aggregator)
+        : formatter.toCsvRows(rollup, aggregator, pool);
+  }
+
+  /** Writes to a temporary file that replaces {@code file} once complete. */
+  private static void writeCsv(File file, Iterator<String[]> rows) throws IOException {
+    Path target = file.toPath().toAbsolutePath();
+    Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+
+    try (FileChannel channel = FileChannel.open(temp, CREATE, TRUNCATE_EXISTING, WRITE);
+        Writer output = Channels.newWriter(channel, UTF_8)) {
+      new CsvPrinter(output).printRows(rows);
+    }
+
+    Files.move(temp, target, REPLACE_EXISTING, ATOMIC_MOVE);
+  }
+
+  public static class LocalDateConverter implements IStringConverter<LocalDate> {
+    @Override
+    public LocalDate convert(String value) {
+      try {
+        return LocalDate.parse(value);
+      } catch (DateTimeParseException e) {
+        throw new ParameterException(value + " is not a date of the form yyyy-mm-dd");
+      }
+    }
+  }
+
+  public static class RollupConverter implements IStringConverter<Rollup> {
+    @Override
+    public Rollup convert(String value) {
+      try {
+        return Rollup.forOptionName(value);
+      } catch (IllegalArgumentException e) {
+        throw new ParameterException(e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Aggregates each boxscore once it's journaled and added to the stat store, and quarantines
+   * failures to --errorFile.
+   */
+  private class RunSink implements BoxscorePipeline.Sink {
+    private final BoxscorePipeline.Sink aggregate;
+
+    /** Whether failures go to {@link #aggregate} even when they're quarantined. */
+    private final boolean reportFailures;
+
+    private final BoxscoreJournal journal;
+
+    private final ColumnarStatStore.SegmentWriter segment;
+
+    private int failures;
+
+    RunSink(
+        BoxscorePipeline.Sink aggregate,
+        boolean reportFailures,
+        BoxscoreJournal journal,
+        ColumnarStatStore.SegmentWriter segment) {
+      this.aggregate = aggregate;
+      this.reportFailures = reportFailures;
+      this.journal = journal;
+      this.segment = segment;
+    }
+
+    @Override
+    public void accept(URI uri, Boxscore boxscore) throws IOException {
+      if (journal != null) {
+        journal.append(uri, boxscore);
+      }
+
+      if (segment != null) {
+        segment.add(uri, boxscore);
+      }
+
+      aggregate.accept(uri, boxscore);
+    }
+
+    @Override
+    public void failed(URI uri, Exception e) throws IOException {
+      if (errorFile == null) {
+        aggregate.failed(uri, e);
+        return;
+      }
+
+      failures++;
+      String line =
+          String.format("%s\t%s%n", uri, Throwables.getRootCause(e).toString().replace('\n', ' '));
+      Files.writeString(errorFile.toPath(), line, UTF_8, CREATE, APPEND);
+
+      if (reportFailures) {
+        aggregate.failed(uri, e);
+      }
+    }
+  }
+
+  private HttpFetcher buildFetcher(Predicate<URI> revalidate) throws IOException {
+    checkArgument(!offline || cacheDir != null, "--offline requires --cacheDir");
+
+    HttpFetcher fetcher =
+        offline
+            ? uri -> {
+              throw new IOException(uri + " is not cached and --offline was specified");
+            }
+            : new BaseballReferenceFetcher(
+                Duration.ofSeconds(httpTimeoutSeconds),
+                maxRequestsPerMinute,
+                sharedBudgetFile == null
+                    ? FetchBudget.UNLIMITED
+                    : new SharedFetchBudget(sharedBudgetFile.toPath(), maxRequestsPerMinute / 60),
+                (uri, status, pause) ->
+                    System.err.printf(
+                        "HTTP %d from %s, pausing %s for %s%n", status, uri, uri.getHost(), pause));
+
+    if (cacheDir == null) {
+      return fetcher;
+    }
+
+    return new CachingHttpFetcher(
+        fetcher, cacheDir.toPath(), cacheMaxMegabytes * 1024 * 1024, revalidate);
+  }
+
+  private BoxscoreStore buildBoxscoreStore() throws IOException {
+    if (cacheDir == null) {
+      return BoxscoreStore.NONE;
+    }
+
+    return new DiskBoxscoreStore(
+        cacheDir.toPath().resolve("boxscores"), BaseballReferenceScraper.PARSER_VERSION);
   }
 
   private static Set<URI> loadBaseballReferenceUrisToScrape(File baseballReferenceUrlListFile)
@@ -9,8 +9,8 @@ public class Matchup {
 
   public Matchup(LocalDate date, String away, String home) {
     this.date = date;
-    this.away = away;
-    this.home = home;
+    this.away = SymbolTable.SHARED.intern(away);
+    this.home = SymbolTable.SHARED.intern(home);
   }
 
   @Override
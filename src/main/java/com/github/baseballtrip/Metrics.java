@@ -0,0 +1,160 @@
+package com.github.baseballtrip;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide timing, count and size metrics for each stage of a run. Recording is cheap enough
+ * to leave on unconditionally; {@code --metrics} only controls whether they're reported. Every
+ * timed unit of work is also emitted as a {@link StageEvent} for JFR recordings.
+ *
+ * <p>Stages can nest: {@link Stage#PARSE} includes its {@link Stage#PARSE_COMMENT} time, and
+ * {@link Stage#RUN} covers everything. Rows are formatted lazily as they're printed, so {@link
+ * Stage#PRINT} also includes the {@link Stage#FORMAT} time of the rows it printed; the two
+ * shouldn't be added up.
+ */
+final class Metrics {
+  enum Stage {
+    RATE_LIMIT_WAIT,
+    HTTP,
+    PARSE,
+    PARSE_COMMENT,
+    AGGREGATE,
+    FORMAT,
+    PRINT,
+    RUN
+  }
+
+  private static final double[] PERCENTILES = {50, 95, 99};
+
+  private static final EnumMap<Stage, LatencyHistogram> latencies = new EnumMap<>(Stage.class);
+
+  private static final EnumMap<Stage, LongAdder> bytes = new EnumMap<>(Stage.class);
+
+  static {
+    for (Stage stage : Stage.values()) {
+      latencies.put(stage, new LatencyHistogram());
+      bytes.put(stage, new LongAdder());
+    }
+  }
+
+  private Metrics() {}
+
+  /** Times a unit of work until the returned timer is closed. */
+  static StageTimer start(Stage stage) {
+    return new StageTimer(stage);
+  }
+
+  /** Records a unit of work that was timed elsewhere, e.g. by {@code RateLimiter.acquire}. */
+  static void record(Stage stage, long nanos, long byteCount) {
+    latencies.get(stage).record(nanos);
+    bytes.get(stage).add(byteCount);
+  }
+
+  static final class StageTimer implements AutoCloseable {
+    private final Stage stage;
+
+    private final long startNanos = System.nanoTime();
+
+    private final StageEvent event = new StageEvent();
+
+    private long byteCount;
+
+    private StageTimer(Stage stage) {
+      this.stage = stage;
+      event.begin();
+    }
+
+    void addBytes(long count) {
+      byteCount += count;
+    }
+
+    @Override
+    public void close() {
+      record(stage, System.nanoTime() - startNanos, byteCount);
+
+      if (event.shouldCommit()) {
+        event.stage = stage.name();
+        event.bytes = byteCount;
+        event.commit();
+      }
+    }
+  }
+
+  /** A human readable table of each stage that recorded anything. */
+  static String summary() {
+    StringBuilder result =
+        new StringBuilder(
+            String.format(
+                "%-16s %8s %12s %10s %10s %10s %10s %12s%n",
+                "stage", "count", "total ms", "p50 ms", "p95 ms", "p99 ms", "max ms", "bytes"));
+
+    for (Map.Entry<Stage, LatencyHistogram> e : latencies.entrySet()) {
+      LatencyHistogram histogram = e.getValue();
+
+      if (histogram.count() == 0) {
+        continue;
+      }
+
+      result.append(
+          String.format(
+              Locale.ROOT,
+              "%-16s %8d %12.1f %10.2f %10.2f %10.2f %10.2f %12d%n",
+              e.getKey(),
+              histogram.count(),
+              millis(histogram.totalNanos()),
+              millis(histogram.percentileNanos(50)),
+              millis(histogram.percentileNanos(95)),
+              millis(histogram.percentileNanos(99)),
+              millis(histogram.maxNanos()),
+              bytes.get(e.getKey()).sum()));
+    }
+
+    return result.toString();
+  }
+
+  static void writeJson(Path file) throws IOException {
+    StringBuilder json = new StringBuilder("{\n  \"stages\": {");
+    String separator = "\n";
+
+    for (Map.Entry<Stage, LatencyHistogram> e : latencies.entrySet()) {
+      LatencyHistogram histogram = e.getValue();
+      json.append(separator)
+          .append("    \"")
+          .append(e.getKey())
+          .append("\": {\"count\": ")
+          .append(histogram.count())
+          .append(", \"totalNanos\": ")
+          .append(histogram.totalNanos())
+          .append(", \"maxNanos\": ")
+          .append(histogram.maxNanos())
+          .append(", \"bytes\": ")
+          .append(bytes.get(e.getKey()).sum());
+
+      for (double percentile : PERCENTILES) {
+        json.append(", \"p")
+            .append((int) percentile)
+            .append("Nanos\": ")
+            .append(histogram.percentileNanos(percentile));
+      }
+
+      json.append('}');
+      separator = ",\n";
+    }
+
+    json.append("\n  }\n}\n");
+    Files.writeString(file, json, UTF_8);
+  }
+
+  private static double millis(long nanos) {
+    return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+  }
+}
@@ -0,0 +1,22 @@
+package com.github.baseballtrip;
+
+/**
+ * The {@code ETag} and {@code Last-Modified} headers a page was served with, which let it be
+ * revalidated later with a conditional request. Either may be null if the server didn't send it.
+ */
+final class PageValidators {
+  static final PageValidators NONE = new PageValidators(null, null);
+
+  final String etag;
+
+  final String lastModified;
+
+  PageValidators(String etag, String lastModified) {
+    this.etag = etag;
+    this.lastModified = lastModified;
+  }
+
+  boolean isEmpty() {
+    return etag == null && lastModified == null;
+  }
+}
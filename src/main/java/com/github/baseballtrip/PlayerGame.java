@@ -0,0 +1,74 @@
+package com.github.baseballtrip;
+
+/**
+ * One player's line from one game, as {@link Rollup}s group it. Sources may reuse one instance for
+ * every row they hand out, so implementations are only valid until the next row.
+ */
+interface PlayerGame {
+  /** {@link SymbolTable} handle of the player ID. */
+  int playerHandle();
+
+  String playerName();
+
+  /** {@link SymbolTable} handle of the player's team, or -1 if it isn't known. */
+  int teamHandle();
+
+  /** The player's team, or null if it isn't known. */
+  String team();
+
+  int season();
+
+  /** The home team. */
+  String venue();
+
+  /** Adds each recorded stat of this line to {@code sums}. */
+  void addStatsTo(StatLine sums);
+
+  /** A reusable view of each stat in a boxscore. */
+  final class OfBoxscore implements PlayerGame {
+    private PlayerStat stat;
+
+    private Matchup matchup;
+
+    OfBoxscore set(PlayerStat stat, Matchup matchup) {
+      this.stat = stat;
+      this.matchup = matchup;
+      return this;
+    }
+
+    @Override
+    public int playerHandle() {
+      return stat.playerHandle;
+    }
+
+    @Override
+    public String playerName() {
+      return stat.playerName;
+    }
+
+    @Override
+    public int teamHandle() {
+      return stat.teamHandle;
+    }
+
+    @Override
+    public String team() {
+      return stat.team;
+    }
+
+    @Override
+    public int season() {
+      return matchup.date.getYear();
+    }
+
+    @Override
+    public String venue() {
+      return matchup.home;
+    }
+
+    @Override
+    public void addStatsTo(StatLine sums) {
+      sums.addAll(stat.statLine);
+    }
+  }
+}
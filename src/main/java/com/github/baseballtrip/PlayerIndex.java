@@ -0,0 +1,246 @@
+package com.github.baseballtrip;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.ImmutableTable;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Player totals that can be looked up by player ID, name prefix, team and season, and that stay
+ * current as boxscores are added. Each boxscore only updates the entries of the players in it, and
+ * is only added once however many times it's loaded. Lookups and updates may happen on different
+ * threads.
+ */
+class PlayerIndex {
+  private final RollupAggregator aggregator;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /** The games added so far. */
+  private final HashSet<URI> games = new HashSet<>();
+
+  /** Players in the order they were first seen. */
+  private final LinkedHashMap<String, Entry> playersById = new LinkedHashMap<>();
+
+  /** Player IDs by lowercased full name, and by the rest of the name from each later word. */
+  private final TreeMap<String, Set<String>> idsByName = new TreeMap<>();
+
+  private final HashMap<String, Set<String>> idsByTeam = new HashMap<>();
+
+  private final HashMap<Integer, Set<String>> idsBySeason = new HashMap<>();
+
+  /** Adds to {@code aggregator}, which must total players and is only updated through here. */
+  PlayerIndex(RollupAggregator aggregator) {
+    this.aggregator = aggregator;
+  }
+
+  /** Adds the game at {@code uri}, unless it was added before. Returns whether it was added. */
+  public boolean add(URI uri, Boxscore boxscore) {
+    lock.writeLock().lock();
+
+    try {
+      if (!games.add(uri)) {
+        return false;
+      }
+
+      aggregator.add(boxscore);
+
+      for (PlayerStat stat : boxscore.stats) {
+        Entry entry = playersById.get(stat.playerId);
+
+        if (entry == null) {
+          entry = new Entry(playersById.size(), aggregator.player(stat));
+          playersById.put(stat.playerId, entry);
+          indexName(stat.playerName, stat.playerId);
+        }
+
+        if (stat.team != null && entry.teams.add(stat.team)) {
+          idsByTeam.computeIfAbsent(stat.team, t -> new LinkedHashSet<>()).add(stat.playerId);
+        }
+
+        idsBySeason
+            .computeIfAbsent(boxscore.matchup.date.getYear(), s -> new LinkedHashSet<>())
+            .add(stat.playerId);
+      }
+
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public boolean contains(URI uri) {
+    lock.readLock().lock();
+
+    try {
+      return games.contains(uri);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void indexName(String name, String playerId) {
+    String normalized = normalize(name);
+
+    for (int start = 0; start >= 0; start = nextWord(normalized, start)) {
+      idsByName
+          .computeIfAbsent(normalized.substring(start), n -> new LinkedHashSet<>())
+          .add(playerId);
+    }
+  }
+
+  private static int nextWord(String name, int start) {
+    int space = name.indexOf(' ', start);
+    return space < 0 ? -1 : space + 1;
+  }
+
+  private static String normalize(String name) {
+    return name.toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * The players matching every given criterion, in the order they were first seen. Null criteria
+   * match everyone. A name prefix matches the start of the full name or of any later word in it.
+   * Totals always cover every game loaded, not just those matching the criteria.
+   */
+  public ImmutableList<PlayerSummary> find(
+      String playerId, String namePrefix, String team, Integer season) {
+    lock.readLock().lock();
+
+    try {
+      List<Collection<String>> candidates = new ArrayList<>();
+
+      if (playerId != null) {
+        candidates.add(playersById.containsKey(playerId) ? List.of(playerId) : List.of());
+      }
+
+      if (namePrefix != null) {
+        String prefix = normalize(namePrefix);
+        LinkedHashSet<String> ids = new LinkedHashSet<>();
+
+        for (Set<String> named : idsByName.subMap(prefix, prefix + Character.MAX_VALUE).values()) {
+          ids.addAll(named);
+        }
+
+        candidates.add(ids);
+      }
+
+      if (team != null) {
+        candidates.add(idsByTeam.getOrDefault(team.toUpperCase(Locale.ROOT), Set.of()));
+      }
+
+      if (season != null) {
+        candidates.add(idsBySeason.getOrDefault(season, Set.of()));
+      }
+
+      if (candidates.isEmpty()) {
+        candidates.add(playersById.keySet());
+      }
+
+      // intersects starting from the fewest candidates, so lookups stay cheap as the index grows
+      candidates.sort(Comparator.comparingInt(Collection::size));
+      ArrayList<String> ids = new ArrayList<>();
+
+      for (String id : candidates.get(0)) {
+        if (candidates.stream().allMatch(c -> c.contains(id))) {
+          ids.add(id);
+        }
+      }
+
+      ids.sort(Comparator.comparingInt(id -> playersById.get(id).order));
+      ImmutableList.Builder<PlayerSummary> result = ImmutableList.builder();
+
+      for (String id : ids) {
+        result.add(playersById.get(id).summarize(id));
+      }
+
+      return result.build();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public int size() {
+    lock.readLock().lock();
+
+    try {
+      return playersById.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** How many games have been added. */
+  public int games() {
+    lock.readLock().lock();
+
+    try {
+      return games.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private static final class Entry {
+    /** When the player was first seen, relative to the others. */
+    private final int order;
+
+    private final GroupTotals totals;
+
+    private final LinkedHashSet<String> teams = new LinkedHashSet<>();
+
+    Entry(int order, GroupTotals totals) {
+      this.order = order;
+      this.totals = totals;
+    }
+
+    PlayerSummary summarize(String playerId) {
+      return new PlayerSummary(
+          playerId,
+          totals.labels.get(0),
+          ImmutableList.copyOf(teams),
+          totals.seasons(),
+          totals.sumsWithDerivedStats().toTable());
+    }
+  }
+
+  /** A snapshot of one player's totals. */
+  static final class PlayerSummary {
+    final String playerId;
+
+    final String playerName;
+
+    final ImmutableList<String> teams;
+
+    final ImmutableSortedSet<Integer> seasons;
+
+    /** Stat totals by group and then stat name, including derived stats. */
+    final ImmutableTable<String, String, Float> stats;
+
+    PlayerSummary(
+        String playerId,
+        String playerName,
+        ImmutableList<String> teams,
+        ImmutableSortedSet<Integer> seasons,
+        ImmutableTable<String, String, Float> stats) {
+      this.playerId = playerId;
+      this.playerName = playerName;
+      this.teams = teams;
+      this.seasons = seasons;
+      this.stats = stats;
+    }
+  }
+}
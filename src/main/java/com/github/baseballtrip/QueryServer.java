@@ -0,0 +1,358 @@
+package com.github.baseballtrip;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.base.Splitter;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Answers JSON queries for player totals from a {@link PlayerIndex}, and loads more games into it
+ * in the background.
+ *
+ * <ul>
+ *   <li>{@code GET /players?id=&name=&team=&season=} lists the players matching every given
+ *       parameter, with their totals.
+ *   <li>{@code POST /boxscores} queues the boxscore URLs in the body, one per line, to be loaded.
+ *       Games already in the index are skipped, so a batch that partly failed can be posted again,
+ *       and so are games whose URL the server's filter rejects.
+ *   <li>{@code GET /boxscores} reports how many games are loaded and pending, and which failed to
+ *       load and why.
+ * </ul>
+ */
+class QueryServer {
+  /** Loads boxscores, handing each to {@code sink} as it loads or fails. */
+  interface Loader {
+    void load(List<URI> uris, BoxscorePipeline.Sink sink) throws IOException;
+  }
+
+  private static final int HTTP_OK = 200;
+
+  private static final int HTTP_ACCEPTED = 202;
+
+  private static final int HTTP_BAD_REQUEST = 400;
+
+  private static final int HTTP_NOT_FOUND = 404;
+
+  private static final int HTTP_BAD_METHOD = 405;
+
+  private final PlayerIndex index;
+
+  /** Which posted games to load. */
+  private final Predicate<URI> filter;
+
+  private final Loader loader;
+
+  private final HttpServer server;
+
+  private final ExecutorService requestExecutor = Executors.newCachedThreadPool();
+
+  /** Loads one batch at a time, so batches are added in the order they were posted. */
+  private final ExecutorService loadExecutor = Executors.newSingleThreadExecutor();
+
+  /** URIs queued to load that haven't been tried yet. */
+  private final AtomicInteger pending = new AtomicInteger();
+
+  /** Why each game that failed to load failed, until it loads. Guarded by itself. */
+  private final LinkedHashMap<URI, String> failures = new LinkedHashMap<>();
+
+  QueryServer(PlayerIndex index, Predicate<URI> filter, Loader loader, int port)
+      throws IOException {
+    this.index = index;
+    this.filter = filter;
+    this.loader = loader;
+    this.server = HttpServer.create(new InetSocketAddress(port), 0);
+    server.createContext("/players", this::handlePlayers);
+    server.createContext("/boxscores", this::handleBoxscores);
+    server.setExecutor(requestExecutor);
+  }
+
+  public void start() {
+    server.start();
+  }
+
+  /** The port the server listens on, which is chosen by the system if it was created with 0. */
+  public int port() {
+    return server.getAddress().getPort();
+  }
+
+  public void stop() {
+    server.stop(0);
+    requestExecutor.shutdownNow();
+    loadExecutor.shutdownNow();
+  }
+
+  private void handlePlayers(HttpExchange exchange) throws IOException {
+    if (!exchange.getRequestMethod().equals("GET")) {
+      respond(exchange, HTTP_BAD_METHOD, error("use GET"));
+      return;
+    }
+
+    if (!exchange.getRequestURI().getPath().equals("/players")) {
+      respond(exchange, HTTP_NOT_FOUND, error("not found"));
+      return;
+    }
+
+    Map<String, String> params = queryParams(exchange.getRequestURI());
+    Integer season;
+
+    try {
+      season = params.containsKey("season") ? Integer.valueOf(params.get("season")) : null;
+    } catch (NumberFormatException e) {
+      respond(exchange, HTTP_BAD_REQUEST, error("season must be a year"));
+      return;
+    }
+
+    ImmutableList<PlayerIndex.PlayerSummary> players =
+        index.find(params.get("id"), params.get("name"), params.get("team"), season);
+    respond(exchange, HTTP_OK, toJson(players));
+  }
+
+  private void handleBoxscores(HttpExchange exchange) throws IOException {
+    if (!exchange.getRequestURI().getPath().equals("/boxscores")) {
+      respond(exchange, HTTP_NOT_FOUND, error("not found"));
+      return;
+    }
+
+    if (exchange.getRequestMethod().equals("GET")) {
+      respond(exchange, HTTP_OK, statusJson());
+      return;
+    }
+
+    if (!exchange.getRequestMethod().equals("POST")) {
+      respond(exchange, HTTP_BAD_METHOD, error("use GET or POST"));
+      return;
+    }
+
+    ImmutableList.Builder<URI> uris = ImmutableList.builder();
+    int alreadyLoaded = 0;
+    int filteredOut = 0;
+
+    try {
+      String body = new String(exchange.getRequestBody().readAllBytes(), UTF_8);
+
+      for (String line : Splitter.on('\n').trimResults().omitEmptyStrings().split(body)) {
+        URI uri = boxscoreUri(line);
+
+        if (index.contains(uri)) {
+          alreadyLoaded++;
+        } else if (!filter.test(uri)) {
+          filteredOut++;
+        } else {
+          uris.add(uri);
+        }
+      }
+    } catch (IllegalArgumentException e) {
+      respond(exchange, HTTP_BAD_REQUEST, error(e.getMessage()));
+      return;
+    }
+
+    ImmutableList<URI> queued = uris.build();
+
+    if (!queued.isEmpty()) {
+      pending.addAndGet(queued.size());
+      loadExecutor.execute(() -> load(queued));
+    }
+
+    respond(
+        exchange,
+        HTTP_ACCEPTED,
+        String.format(
+            "{\"queued\": %d, \"alreadyLoaded\": %d, \"filteredOut\": %d}%n",
+            queued.size(), alreadyLoaded, filteredOut));
+  }
+
+  /** Parses an absolute http(s) URL of a boxscore page, such as those listed in --inFile. */
+  private static URI boxscoreUri(String line) {
+    URI uri = URI.create(line);
+    String path = uri.getPath();
+    String fileName = path == null ? "" : path.substring(path.lastIndexOf('/') + 1);
+
+    if (!uri.isAbsolute()
+        || !(uri.getScheme().equals("http") || uri.getScheme().equals("https"))
+        || BaseballReferenceScraper.boxscoreUriForFileName(fileName).isEmpty()) {
+      throw new IllegalArgumentException(line + " is not the URL of a boxscore page");
+    }
+
+    return uri;
+  }
+
+  /**
+   * Loads a batch, carrying on past games that fail. Games the loader didn't get to because it
+   * gave up part way are recorded as failed too, so they can be posted again.
+   */
+  private void load(List<URI> uris) {
+    try {
+      loader.load(uris, new IndexingSink());
+    } catch (IOException | RuntimeException e) {
+      for (URI uri : uris) {
+        if (!index.contains(uri)) {
+          recordFailure(uri, e);
+        }
+      }
+    } finally {
+      pending.addAndGet(-uris.size());
+    }
+
+    System.err.printf(
+        "Indexed %d games and %d players; %d games failed to load%n",
+        index.games(), index.size(), failureCount());
+  }
+
+  /** Adds each game to the index as it loads, and records the ones that fail. */
+  private final class IndexingSink implements BoxscorePipeline.Sink {
+    @Override
+    public void accept(URI uri, Boxscore boxscore) {
+      index.add(uri, boxscore);
+
+      synchronized (failures) {
+        failures.remove(uri);
+      }
+    }
+
+    @Override
+    public void failed(URI uri, Exception e) {
+      recordFailure(uri, e);
+    }
+  }
+
+  private void recordFailure(URI uri, Exception e) {
+    synchronized (failures) {
+      failures.put(uri, Throwables.getRootCause(e).toString());
+    }
+  }
+
+  private int failureCount() {
+    synchronized (failures) {
+      return failures.size();
+    }
+  }
+
+  private String statusJson() {
+    StringBuilder json =
+        new StringBuilder()
+            .append("{\"games\": ")
+            .append(index.games())
+            .append(", \"pending\": ")
+            .append(pending.get())
+            .append(", \"failed\": [");
+    String separator = "\n";
+
+    synchronized (failures) {
+      for (Map.Entry<URI, String> failure : failures.entrySet()) {
+        appendString(json.append(separator).append("  {\"uri\": "), failure.getKey().toString());
+        appendString(json.append(", \"error\": "), failure.getValue()).append('}');
+        separator = ",\n";
+      }
+
+      return json.append(failures.isEmpty() ? "]}\n" : "\n]}\n").toString();
+    }
+  }
+
+  private static Map<String, String> queryParams(URI uri) {
+    HashMap<String, String> result = new HashMap<>();
+
+    if (uri.getRawQuery() == null) {
+      return result;
+    }
+
+    for (String param : Splitter.on('&').omitEmptyStrings().split(uri.getRawQuery())) {
+      int equals = param.indexOf('=');
+
+      if (equals > 0) {
+        result.put(
+            URLDecoder.decode(param.substring(0, equals), UTF_8),
+            URLDecoder.decode(param.substring(equals + 1), UTF_8));
+      }
+    }
+
+    return result;
+  }
+
+  static String toJson(List<PlayerIndex.PlayerSummary> players) {
+    StringBuilder json = new StringBuilder("[");
+    String separator = "\n";
+
+    for (PlayerIndex.PlayerSummary player : players) {
+      json.append(separator).append("  {\"id\": ");
+      appendString(json, player.playerId);
+      json.append(", \"name\": ");
+      appendString(json, player.playerName);
+      json.append(", \"teams\": [");
+
+      for (int i = 0; i < player.teams.size(); i++) {
+        appendString(json.append(i > 0 ? ", " : ""), player.teams.get(i));
+      }
+
+      json.append("], \"seasons\": ").append(player.seasons).append(", \"stats\": {");
+      String groupSeparator = "";
+
+      for (Map.Entry<String, Map<String, Float>> group : player.stats.rowMap().entrySet()) {
+        appendString(json.append(groupSeparator), group.getKey()).append(": {");
+        String statSeparator = "";
+
+        for (Map.Entry<String, Float> stat : group.getValue().entrySet()) {
+          appendString(json.append(statSeparator), stat.getKey())
+              .append(": ")
+              .append(stat.getValue());
+          statSeparator = ", ";
+        }
+
+        json.append('}');
+        groupSeparator = ", ";
+      }
+
+      json.append("}}");
+      separator = ",\n";
+    }
+
+    return json.append("\n]\n").toString();
+  }
+
+  private static String error(String message) {
+    return appendString(new StringBuilder("{\"error\": "), message).append("}\n").toString();
+  }
+
+  private static StringBuilder appendString(StringBuilder json, String value) {
+    json.append('"');
+
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+
+      if (c == '"' || c == '\\') {
+        json.append('\\').append(c);
+      } else if (c < 0x20) {
+        json.append(String.format("\\u%04x", (int) c));
+      } else {
+        json.append(c);
+      }
+    }
+
+    return json.append('"');
+  }
+
+  private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+    byte[] bytes = body.getBytes(UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+    exchange.sendResponseHeaders(status, bytes.length);
+
+    try (OutputStream output = exchange.getResponseBody()) {
+      output.write(bytes);
+    }
+  }
+}
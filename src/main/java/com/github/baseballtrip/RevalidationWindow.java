@@ -0,0 +1,43 @@
+package com.github.baseballtrip;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.net.URI;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.function.Predicate;
+
+/**
+ * Matches boxscores for games played within the last {@code days} days, which may still get stat
+ * corrections. Older games are treated as final and never revalidated. The game date comes from
+ * the URI, so this never needs the page itself.
+ */
+class RevalidationWindow implements Predicate<URI> {
+  private final int days;
+
+  private final Clock clock;
+
+  public RevalidationWindow(int days, Clock clock) {
+    checkArgument(days >= 0, "days must not be negative: %s", days);
+    this.days = days;
+    this.clock = clock;
+  }
+
+  @Override
+  public boolean test(URI uri) {
+    if (days == 0) {
+      return false;
+    }
+
+    LocalDate gameDate;
+
+    try {
+      gameDate = BaseballReferenceScraper.parseGameDate(uri);
+    } catch (IllegalArgumentException e) {
+      // not a boxscore URI, so it'll fail to parse anyway
+      return false;
+    }
+
+    return gameDate.isAfter(LocalDate.now(clock).minusDays(days));
+  }
+}
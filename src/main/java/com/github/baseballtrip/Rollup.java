@@ -0,0 +1,125 @@
+package com.github.baseballtrip;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * A way of grouping player-games before their stats are summed. Each group is identified by a key,
+ * and described in the CSV by one or more label columns.
+ */
+public enum Rollup {
+  PLAYER("player", ImmutableList.of("player")) {
+    @Override
+    long key(PlayerGame game) {
+      return game.playerHandle();
+    }
+
+    @Override
+    ImmutableList<String> labels(PlayerGame game) {
+      return ImmutableList.of(game.playerName());
+    }
+  },
+
+  PLAYER_SEASON("player-season", ImmutableList.of("player", "season")) {
+    @Override
+    long key(PlayerGame game) {
+      return pack(game.playerHandle(), game.season());
+    }
+
+    @Override
+    ImmutableList<String> labels(PlayerGame game) {
+      return ImmutableList.of(game.playerName(), Integer.toString(game.season()));
+    }
+  },
+
+  PLAYER_TEAM("player-team", ImmutableList.of("player", "team")) {
+    @Override
+    long key(PlayerGame game) {
+      return game.teamHandle() < 0 ? NO_GROUP : pack(game.playerHandle(), game.teamHandle());
+    }
+
+    @Override
+    ImmutableList<String> labels(PlayerGame game) {
+      return ImmutableList.of(game.playerName(), game.team());
+    }
+  },
+
+  TEAM_SEASON("team-season", ImmutableList.of("team", "season")) {
+    @Override
+    int partitionHash(PlayerGame game) {
+      return game.teamHandle();
+    }
+
+    @Override
+    long key(PlayerGame game) {
+      return game.teamHandle() < 0 ? NO_GROUP : pack(game.teamHandle(), game.season());
+    }
+
+    @Override
+    ImmutableList<String> labels(PlayerGame game) {
+      return ImmutableList.of(game.team(), Integer.toString(game.season()));
+    }
+  },
+
+  /** Both teams' stats in games at each home team's park. */
+  VENUE("venue", ImmutableList.of("venue")) {
+    @Override
+    int partitionHash(PlayerGame game) {
+      return game.venue().hashCode();
+    }
+
+    @Override
+    long key(PlayerGame game) {
+      return SymbolTable.SHARED.handle(game.venue());
+    }
+
+    @Override
+    ImmutableList<String> labels(PlayerGame game) {
+      return ImmutableList.of(game.venue());
+    }
+  };
+
+  /** The {@link #key} of a game that can't be placed in a group. */
+  static final long NO_GROUP = Long.MIN_VALUE;
+
+  /** How the rollup is named on the command line and in file names. */
+  public final String optionName;
+
+  /** Headers of the label columns that lead each row. */
+  public final ImmutableList<String> labelHeaders;
+
+  Rollup(String optionName, ImmutableList<String> labelHeaders) {
+    this.optionName = optionName;
+    this.labelHeaders = labelHeaders;
+  }
+
+  /**
+   * The group {@code game} belongs to, or {@link #NO_GROUP} if it can't be placed in one. Keys are
+   * built from {@link SymbolTable} handles, so groups can be looked up without allocating.
+   */
+  abstract long key(PlayerGame game);
+
+  /**
+   * A cheap hash that's equal for every game in the same group, for splitting the groups between
+   * threads without building keys.
+   */
+  int partitionHash(PlayerGame game) {
+    return game.playerHandle();
+  }
+
+  /** Label column values for the group with {@link #key}. */
+  abstract ImmutableList<String> labels(PlayerGame game);
+
+  public static Rollup forOptionName(String optionName) {
+    for (Rollup rollup : values()) {
+      if (rollup.optionName.equals(optionName)) {
+        return rollup;
+      }
+    }
+
+    throw new IllegalArgumentException("Unknown rollup: " + optionName);
+  }
+
+  private static long pack(int high, int low) {
+    return ((long) high << 32) | low;
+  }
+}
@@ -0,0 +1,278 @@
+package com.github.baseballtrip;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Folds boxscores into running totals for several {@link Rollup}s at once, as soon as they are
+ * parsed. Each player-game is visited once and added to its group in every rollup, so memory grows
+ * with the number of distinct groups rather than the number of player-games. Groups are kept in the
+ * order they were first seen.
+ */
+public class RollupAggregator {
+  private final EnumMap<Rollup, LongMap<GroupTotals>> groupsByRollup =
+      new EnumMap<>(Rollup.class);
+
+  /** The keys of {@link #groupsByRollup}, which can be looped over without allocating. */
+  private final Rollup[] rollups;
+
+  /** Player totals indexed by {@link PlayerGame#playerHandle}, filled in as they're looked up. */
+  private GroupTotals[] playersByHandle = new GroupTotals[0];
+
+  private final PlayerGame.OfBoxscore boxscoreView = new PlayerGame.OfBoxscore();
+
+  /** Aggregates by player only. */
+  public RollupAggregator() {
+    this(Set.of(Rollup.PLAYER));
+  }
+
+  public RollupAggregator(Set<Rollup> rollups) {
+    for (Rollup rollup : rollups) {
+      groupsByRollup.put(rollup, new LongMap<>());
+    }
+
+    this.rollups = groupsByRollup.keySet().toArray(new Rollup[0]);
+  }
+
+  public void add(Boxscore boxscore) {
+    try (Metrics.StageTimer timer = Metrics.start(Metrics.Stage.AGGREGATE)) {
+      for (PlayerStat stat : boxscore.stats) {
+        add(boxscoreView.set(stat, boxscore.matchup));
+      }
+    }
+  }
+
+  /** Adds one player-game to every rollup. */
+  void add(PlayerGame game) {
+    for (Rollup rollup : rollups) {
+      GroupTotals totals = group(rollup, game);
+
+      if (totals != null) {
+        totals.add(game);
+      }
+    }
+  }
+
+  /**
+   * Adds one player-game to every rollup, but not its stats. The group it went to in each rollup,
+   * or null if none, is stored in {@code groups} from {@code offset}, in the order of {@link
+   * #rollups}, so that the caller can add the stats with {@link GroupTotals#addStat}.
+   */
+  void addWithoutStats(PlayerGame game, GroupTotals[] groups, int offset) {
+    for (int i = 0; i < rollups.length; i++) {
+      GroupTotals totals = group(rollups[i], game);
+
+      if (totals != null) {
+        totals.addWithoutStats(game);
+      }
+
+      groups[offset + i] = totals;
+    }
+  }
+
+  /** The group {@code game} belongs to in {@code rollup}, created if it's new, or null if none. */
+  private GroupTotals group(Rollup rollup, PlayerGame game) {
+    LongMap<GroupTotals> groups = groupsByRollup.get(rollup);
+
+    if (rollup == Rollup.PLAYER) {
+      return playerTotals(groups, game);
+    }
+
+    long key = rollup.key(game);
+
+    if (key == Rollup.NO_GROUP) {
+      return null;
+    }
+
+    GroupTotals totals = groups.get(key);
+
+    if (totals == null) {
+      totals = new GroupTotals(rollup.labels(game));
+      groups.put(key, totals);
+    }
+
+    return totals;
+  }
+
+  /**
+   * Adds {@code boxscores} using {@code pool}, with the same totals and group order as adding them
+   * one at a time. Groups are split between tasks by {@link Rollup#partitionHash}, and each task
+   * scans every player-game in order, so each group's stats are still summed in input order and
+   * the float sums come out bit for bit the same.
+   */
+  public void addAll(List<Boxscore> boxscores, ForkJoinPool pool) {
+    try (Metrics.StageTimer timer = Metrics.start(Metrics.Stage.AGGREGATE)) {
+      int partitions = pool.getParallelism();
+      ArrayList<PartitionTask> tasks = new ArrayList<>();
+
+      for (Map.Entry<Rollup, LongMap<GroupTotals>> e : groupsByRollup.entrySet()) {
+        for (int partition = 0; partition < partitions; partition++) {
+          tasks.add(new PartitionTask(e.getKey(), e.getValue(), boxscores, partition, partitions));
+        }
+      }
+
+      pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+
+      for (Rollup rollup : groupsByRollup.keySet()) {
+        addNewGroupsInOrder(rollup, tasks);
+      }
+    }
+  }
+
+  /** Adds the groups the tasks first saw, in the order a sequential pass would have seen them. */
+  private void addNewGroupsInOrder(Rollup rollup, List<PartitionTask> tasks) {
+    ArrayList<NewGroup> newGroups = new ArrayList<>();
+
+    for (PartitionTask task : tasks) {
+      if (task.rollup == rollup) {
+        newGroups.addAll(task.newGroups.values());
+      }
+    }
+
+    newGroups.sort(Comparator.comparingLong(group -> group.firstSeen));
+    LongMap<GroupTotals> groups = groupsByRollup.get(rollup);
+
+    for (NewGroup group : newGroups) {
+      groups.put(group.key, group.totals);
+    }
+  }
+
+  private static final class NewGroup {
+    private final long key;
+
+    private final long firstSeen;
+
+    private final GroupTotals totals;
+
+    NewGroup(long key, long firstSeen, GroupTotals totals) {
+      this.key = key;
+      this.firstSeen = firstSeen;
+      this.totals = totals;
+    }
+  }
+
+  /**
+   * Totals one partition of a rollup's groups. Groups that already exist are updated in place,
+   * which is safe because no other task touches the same group and the shared map is only read.
+   */
+  private static final class PartitionTask extends RecursiveAction {
+    private final Rollup rollup;
+
+    private final LongMap<GroupTotals> existingGroups;
+
+    private final List<Boxscore> boxscores;
+
+    private final int partition;
+
+    private final int partitions;
+
+    private final LongMap<NewGroup> newGroups = new LongMap<>();
+
+    PartitionTask(
+        Rollup rollup,
+        LongMap<GroupTotals> existingGroups,
+        List<Boxscore> boxscores,
+        int partition,
+        int partitions) {
+      this.rollup = rollup;
+      this.existingGroups = existingGroups;
+      this.boxscores = boxscores;
+      this.partition = partition;
+      this.partitions = partitions;
+    }
+
+    @Override
+    protected void compute() {
+      PlayerGame.OfBoxscore game = new PlayerGame.OfBoxscore();
+
+      for (int i = 0; i < boxscores.size(); i++) {
+        Boxscore boxscore = boxscores.get(i);
+
+        for (int j = 0; j < boxscore.stats.size(); j++) {
+          game.set(boxscore.stats.get(j), boxscore.matchup);
+
+          if (Math.floorMod(rollup.partitionHash(game), partitions) != partition) {
+            continue;
+          }
+
+          long key = rollup.key(game);
+
+          if (key == Rollup.NO_GROUP) {
+            continue;
+          }
+
+          GroupTotals totals = existingGroups.get(key);
+
+          if (totals == null) {
+            NewGroup group = newGroups.get(key);
+
+            if (group == null) {
+              long firstSeen = ((long) i << 32) | j;
+              group = new NewGroup(key, firstSeen, new GroupTotals(rollup.labels(game)));
+              newGroups.put(key, group);
+            }
+
+            totals = group.totals;
+          }
+
+          totals.add(game);
+        }
+      }
+    }
+  }
+
+  private GroupTotals playerTotals(LongMap<GroupTotals> players, PlayerGame game) {
+    int handle = game.playerHandle();
+
+    if (handle >= playersByHandle.length) {
+      playersByHandle =
+          Arrays.copyOf(playersByHandle, Math.max(handle + 1, playersByHandle.length * 2));
+    }
+
+    GroupTotals totals = playersByHandle[handle];
+
+    if (totals == null) {
+      // may have been added by addAll
+      totals = players.get(handle);
+
+      if (totals == null) {
+        totals = new GroupTotals(Rollup.PLAYER.labels(game));
+        players.put(handle, totals);
+      }
+
+      playersByHandle[handle] = totals;
+    }
+
+    return totals;
+  }
+
+  public Set<Rollup> rollups() {
+    return Collections.unmodifiableSet(groupsByRollup.keySet());
+  }
+
+  public Collection<GroupTotals> groups(Rollup rollup) {
+    checkArgument(groupsByRollup.containsKey(rollup), "%s is not being aggregated", rollup);
+    return groupsByRollup.get(rollup).values();
+  }
+
+  public Collection<GroupTotals> players() {
+    return groups(Rollup.PLAYER);
+  }
+
+  /** The totals of {@code stat}'s player, or null if no game of theirs has been added. */
+  GroupTotals player(PlayerStat stat) {
+    return groupsByRollup.get(Rollup.PLAYER).get(stat.playerHandle);
+  }
+}
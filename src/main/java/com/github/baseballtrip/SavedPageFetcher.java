@@ -0,0 +1,109 @@
+package com.github.baseballtrip;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Serves boxscore pages that were saved to a directory or a zip archive, instead of fetching them.
+ * Each page is found by its file name, which is the last segment of the URI it was published at,
+ * so the URIs of saved pages can be recovered and parsed like fetched ones.
+ */
+class SavedPageFetcher implements HttpFetcher, Closeable {
+  private final FileSystem archive;
+
+  /** Saved pages keyed by their boxscore URI, in the order the games were played. */
+  private final ImmutableMap<URI, Path> pages;
+
+  private SavedPageFetcher(FileSystem archive, ImmutableMap<URI, Path> pages) {
+    this.archive = archive;
+    this.pages = pages;
+  }
+
+  /** Indexes the boxscore pages anywhere under a directory, or in a zip archive. */
+  public static SavedPageFetcher open(Path directoryOrZip) throws IOException {
+    if (Files.isDirectory(directoryOrZip)) {
+      return new SavedPageFetcher(null, index(directoryOrZip));
+    }
+
+    FileSystem archive = FileSystems.newFileSystem(directoryOrZip);
+
+    try {
+      return new SavedPageFetcher(archive, index(archive.getRootDirectories().iterator().next()));
+    } catch (IOException | RuntimeException e) {
+      archive.close();
+      throw e;
+    }
+  }
+
+  private static ImmutableMap<URI, Path> index(Path root) throws IOException {
+    TreeMap<String, Path> pagesByFileName = new TreeMap<>();
+
+    try (Stream<Path> files = Files.walk(root)) {
+      files
+          .filter(Files::isRegularFile)
+          .forEach(file -> pagesByFileName.putIfAbsent(file.getFileName().toString(), file));
+    }
+
+    TreeMap<URI, Path> result =
+        new TreeMap<>(
+            Comparator.comparing(BaseballReferenceScraper::parseGameDate)
+                .thenComparing(URI::toString));
+
+    for (Map.Entry<String, Path> e : pagesByFileName.entrySet()) {
+      Optional<URI> uri = BaseballReferenceScraper.boxscoreUriForFileName(e.getKey());
+
+      if (uri.isPresent()) {
+        result.put(uri.get(), e.getValue());
+      }
+    }
+
+    return ImmutableMap.copyOf(result);
+  }
+
+  /** The boxscore URIs of every saved page, in the order the games were played. */
+  public ImmutableList<URI> boxscoreUris() {
+    return pages.keySet().asList();
+  }
+
+  @Override
+  public String fetch(URI uri) throws IOException {
+    return new String(Files.readAllBytes(page(uri)), UTF_8);
+  }
+
+  @Override
+  public InputStream fetchStream(URI uri) throws IOException {
+    return Files.newInputStream(page(uri));
+  }
+
+  private Path page(URI uri) throws IOException {
+    Path page = pages.get(uri);
+
+    if (page == null) {
+      throw new IOException(uri + " has no saved page");
+    }
+
+    return page;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (archive != null) {
+      archive.close();
+    }
+  }
+}
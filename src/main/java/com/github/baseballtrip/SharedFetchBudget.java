@@ -0,0 +1,93 @@
+package com.github.baseballtrip;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A request budget shared by every process on the machine that uses the same state file, so that
+ * several concurrent runs stay within the site's rate limit together.
+ *
+ * <p>The file holds the wall-clock time at which the next request may start, and the time until
+ * which all requests are paused. Each request takes the next free slot under an exclusive file
+ * lock and then sleeps until its slot without holding the lock, so requests from all processes
+ * are spaced evenly and served roughly in the order they asked.
+ */
+class SharedFetchBudget implements FetchBudget {
+  private static final int STATE_BYTES = 16;
+
+  private final Path stateFile;
+
+  private final long intervalMillis;
+
+  public SharedFetchBudget(Path stateFile, double permitsPerSecond) {
+    checkArgument(permitsPerSecond > 0, "rate must be positive: %s", permitsPerSecond);
+    this.stateFile = stateFile;
+    this.intervalMillis = (long) Math.ceil(1000 / permitsPerSecond);
+  }
+
+  @Override
+  public double acquire() throws IOException, InterruptedException {
+    long slotMillis = reserveSlot();
+    long waitMillis = slotMillis - System.currentTimeMillis();
+
+    if (waitMillis <= 0) {
+      return 0;
+    }
+
+    TimeUnit.MILLISECONDS.sleep(waitMillis);
+    return waitMillis / 1000d;
+  }
+
+  @Override
+  public void pause(Duration duration) throws IOException {
+    update(
+        state -> {
+          long pausedUntil = System.currentTimeMillis() + duration.toMillis();
+          state.putLong(8, Math.max(state.getLong(8), pausedUntil));
+          return 0;
+        });
+  }
+
+  private long reserveSlot() throws IOException {
+    return update(
+        state -> {
+          long slot =
+              Math.max(System.currentTimeMillis(), Math.max(state.getLong(0), state.getLong(8)));
+          state.putLong(0, slot + intervalMillis);
+          return slot;
+        });
+  }
+
+  private interface StateUpdate {
+    long apply(ByteBuffer state);
+  }
+
+  /**
+   * Applies {@code update} to the state under the file lock. File locks are held on behalf of the
+   * whole JVM, so threads in this process also take turns on this object's monitor.
+   */
+  private synchronized long update(StateUpdate update) throws IOException {
+    try (FileChannel channel = FileChannel.open(stateFile, CREATE, READ, WRITE);
+        FileLock lock = channel.lock()) {
+      ByteBuffer state = ByteBuffer.allocate(STATE_BYTES);
+
+      while (state.hasRemaining() && channel.read(state, state.position()) >= 0) {}
+
+      // a new or truncated file reads as zeros, meaning no request is waiting
+      state.clear();
+      long result = update.apply(state);
+      channel.write(state, 0);
+      return result;
+    }
+  }
+}
@@ -0,0 +1,336 @@
+package com.github.baseballtrip;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Sets;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+/**
+ * Totals games like {@link RollupAggregator}, but within a bounded amount of memory however many
+ * games there are.
+ *
+ * <p>Games are held in memory until they're estimated to fill the budget. From then on, each
+ * player-game is written to one of {@link #PARTITIONS} files, chosen by a hash of the player ID,
+ * so each group of a rollup by player is totaled from a single partition. {@link #finish} totals
+ * one partition at a time and writes its formatted rows out in the order their groups were first
+ * seen, and {@link #rows} merges the partitions back into that order. The rows and their order are
+ * the same as totaling everything in memory. Spilled rows are formatted on the thread that calls
+ * {@link #finish}, so that only one partition's totals are in memory at a time.
+ *
+ * <p>Only the games buffered before spilling count against the budget, not whatever else the run
+ * keeps in memory. Rollups by team or venue have a group per team, season or park rather than per
+ * player, so they're always totaled in memory.
+ */
+class SpillingAggregator implements Closeable {
+  static final int PARTITIONS = 64;
+
+  private static final ImmutableSet<Rollup> PLAYER_ROLLUPS =
+      Sets.immutableEnumSet(Rollup.PLAYER, Rollup.PLAYER_SEASON, Rollup.PLAYER_TEAM);
+
+  /** A rough upper bound on the heap a buffered player-game takes, stat line included. */
+  private static final long PLAYER_GAME_BYTES = 128 + 4L * StatSchema.SIZE;
+
+  private static final int BUFFER_BYTES = 1 << 14;
+
+  private final ImmutableSet<Rollup> playerRollups;
+
+  private final RollupAggregator teamTotals;
+
+  private final Path spillDir;
+
+  private final long maxBytes;
+
+  private final BaseballCsvFormatter formatter = new BaseballCsvFormatter();
+
+  private ArrayList<Boxscore> buffered = new ArrayList<>();
+
+  private long bufferedBytes;
+
+  /** Open partition files once games no longer fit in memory, and null until then. */
+  private DataOutputStream[] partitions;
+
+  private final long[] partitionRows = new long[PARTITIONS];
+
+  /** Player-games added so far, which orders them across partitions. */
+  private long playerGames;
+
+  /** Rows written per partition for each rollup by player, once finished. */
+  private final EnumMap<Rollup, int[]> runRows = new EnumMap<>(Rollup.class);
+
+  /** Totals of the rollups by player, if games never had to be spilled. */
+  private RollupAggregator playerTotals;
+
+  private final List<Closeable> openRuns = new ArrayList<>();
+
+  /** Spills to a new directory under {@code tempDir} once games take up {@code maxBytes}. */
+  SpillingAggregator(Set<Rollup> rollups, Path tempDir, long maxBytes) throws IOException {
+    this.playerRollups = Sets.immutableEnumSet(Sets.intersection(rollups, PLAYER_ROLLUPS));
+    this.teamTotals = new RollupAggregator(Sets.difference(rollups, PLAYER_ROLLUPS));
+    Files.createDirectories(tempDir);
+    this.spillDir = Files.createTempDirectory(tempDir, "baseball-trip-spill");
+    this.maxBytes = maxBytes;
+  }
+
+  public void add(Boxscore boxscore) throws IOException {
+    checkState(buffered != null, "already finished");
+    teamTotals.add(boxscore);
+
+    if (partitions != null) {
+      spill(boxscore);
+      return;
+    }
+
+    buffered.add(boxscore);
+    bufferedBytes += PLAYER_GAME_BYTES * boxscore.stats.size();
+
+    if (bufferedBytes > maxBytes) {
+      partitions = new DataOutputStream[PARTITIONS];
+
+      for (int i = 0; i < PARTITIONS; i++) {
+        partitions[i] =
+            new DataOutputStream(
+                new BufferedOutputStream(
+                    Files.newOutputStream(partitionFile(i)), BUFFER_BYTES));
+      }
+
+      for (Boxscore game : buffered) {
+        spill(game);
+      }
+
+      buffered = new ArrayList<>();
+      bufferedBytes = 0;
+    }
+  }
+
+  /** Writes each player-game as its order, its game's matchup and the player's line. */
+  private void spill(Boxscore boxscore) throws IOException {
+    for (PlayerStat stat : boxscore.stats) {
+      int partition = Math.floorMod(stat.playerId.hashCode(), PARTITIONS);
+      DataOutputStream output = partitions[partition];
+      output.writeLong(playerGames++);
+      DiskBoxscoreStore.writeMatchup(boxscore.matchup, output);
+      DiskBoxscoreStore.writePlayerStat(stat, output);
+      partitionRows[partition]++;
+    }
+  }
+
+  /** Whether games no longer fit in memory and went to disk. */
+  public boolean spilled() {
+    return partitions != null;
+  }
+
+  /** Totals the rollups by player once every game is added, so that rows can be read. */
+  public void finish() throws IOException {
+    checkState(buffered != null, "already finished");
+
+    if (partitions == null) {
+      playerTotals = new RollupAggregator(playerRollups);
+
+      for (Boxscore boxscore : buffered) {
+        playerTotals.add(boxscore);
+      }
+    } else {
+      for (Rollup rollup : playerRollups) {
+        runRows.put(rollup, new int[PARTITIONS]);
+      }
+
+      for (int i = 0; i < PARTITIONS; i++) {
+        partitions[i].close();
+        totalPartition(i);
+      }
+    }
+
+    buffered = null;
+  }
+
+  private void totalPartition(int partition) throws IOException {
+    RollupAggregator totals = new RollupAggregator(playerRollups);
+    EnumMap<Rollup, ArrayList<Long>> firstSeen = new EnumMap<>(Rollup.class);
+
+    for (Rollup rollup : playerRollups) {
+      firstSeen.put(rollup, new ArrayList<>());
+    }
+
+    Path file = partitionFile(partition);
+    PlayerGame.OfBoxscore game = new PlayerGame.OfBoxscore();
+
+    try (DataInputStream input = openRun(file);
+        Metrics.StageTimer timer = Metrics.start(Metrics.Stage.AGGREGATE)) {
+      for (long i = 0; i < partitionRows[partition]; i++) {
+        long order = input.readLong();
+        Matchup matchup = DiskBoxscoreStore.readMatchup(input);
+        totals.add(game.set(DiskBoxscoreStore.readPlayerStat(input), matchup));
+
+        // each player-game starts at most one new group per rollup
+        for (Rollup rollup : playerRollups) {
+          if (totals.groups(rollup).size() > firstSeen.get(rollup).size()) {
+            firstSeen.get(rollup).add(order);
+          }
+        }
+      }
+
+      timer.addBytes(Files.size(file));
+    }
+
+    Files.delete(file);
+
+    for (Rollup rollup : playerRollups) {
+      Iterator<Long> orders = firstSeen.get(rollup).iterator();
+
+      try (DataOutputStream output =
+              new DataOutputStream(
+                  new BufferedOutputStream(
+                      Files.newOutputStream(runFile(rollup, partition)), BUFFER_BYTES));
+          Metrics.StageTimer timer = Metrics.start(Metrics.Stage.FORMAT)) {
+        for (GroupTotals group : totals.groups(rollup)) {
+          String[] cells = formatter.formatRow(group);
+          output.writeLong(orders.next());
+          output.writeInt(cells.length);
+
+          for (String cell : cells) {
+            output.writeUTF(cell);
+          }
+        }
+      }
+
+      runRows.get(rollup)[partition] = totals.groups(rollup).size();
+    }
+  }
+
+  /**
+   * The header and a row per group of {@code rollup}, in the order groups were first seen. Rows
+   * totaled in memory are formatted on {@code pool} if it isn't null; spilled rows were already
+   * formatted by {@link #finish}.
+   */
+  public Iterator<String[]> rows(Rollup rollup, ForkJoinPool pool) throws IOException {
+    checkState(buffered == null, "not finished");
+
+    if (!playerRollups.contains(rollup)) {
+      return toCsvRows(rollup, teamTotals, pool);
+    }
+
+    if (partitions == null) {
+      return toCsvRows(rollup, playerTotals, pool);
+    }
+
+    ArrayList<Iterator<Run.Row>> runs = new ArrayList<>();
+
+    for (int i = 0; i < PARTITIONS; i++) {
+      runs.add(new Run(openRun(runFile(rollup, i)), runRows.get(rollup)[i]));
+    }
+
+    return Iterators.concat(
+        Iterators.singletonIterator(formatter.headerRow(rollup)),
+        Iterators.transform(
+            Iterators.mergeSorted(runs, Comparator.comparingLong(row -> row.order)),
+            row -> row.cells));
+  }
+
+  private Iterator<String[]> toCsvRows(
+      Rollup rollup, RollupAggregator aggregator, ForkJoinPool pool) {
+    return pool == null
+        ? formatter.toCsvRows(rollup, aggregator)
+        : formatter.toCsvRows(rollup, aggregator, pool);
+  }
+
+  private DataInputStream openRun(Path file) throws IOException {
+    DataInputStream input =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_BYTES));
+    openRuns.add(input);
+    return input;
+  }
+
+  private Path partitionFile(int partition) {
+    return spillDir.resolve(String.format("partition-%02d", partition));
+  }
+
+  private Path runFile(Rollup rollup, int partition) {
+    return spillDir.resolve(String.format("%s-%02d.rows", rollup.optionName, partition));
+  }
+
+  /** Deletes everything spilled. */
+  @Override
+  public void close() throws IOException {
+    for (Closeable run : openRuns) {
+      run.close();
+    }
+
+    if (partitions != null) {
+      for (DataOutputStream partition : partitions) {
+        partition.close();
+      }
+    }
+
+    try (Stream<Path> files = Files.list(spillDir)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        Files.delete(file);
+      }
+    }
+
+    Files.delete(spillDir);
+  }
+
+  /** Formatted rows of one partition, in the order their groups were first seen. */
+  private static final class Run extends AbstractIterator<Run.Row> {
+    private final DataInputStream input;
+
+    private int remaining;
+
+    Run(DataInputStream input, int rows) {
+      this.input = input;
+      this.remaining = rows;
+    }
+
+    @Override
+    protected Row computeNext() {
+      if (remaining == 0) {
+        return endOfData();
+      }
+
+      remaining--;
+
+      try {
+        long order = input.readLong();
+        String[] cells = new String[input.readInt()];
+
+        for (int i = 0; i < cells.length; i++) {
+          cells[i] = input.readUTF();
+        }
+
+        return new Row(order, cells);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    private static final class Row {
+      private final long order;
+
+      private final String[] cells;
+
+      Row(long order, String[] cells) {
+        this.order = order;
+        this.cells = cells;
+      }
+    }
+  }
+}
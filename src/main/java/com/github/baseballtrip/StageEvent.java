@@ -0,0 +1,20 @@
+package com.github.baseballtrip;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** A JFR event for one unit of work in a {@link Metrics.Stage}, e.g. one fetch or one parse. */
+@Name("com.github.baseballtrip.Stage")
+@Label("Boxscore Stage")
+@Category("Baseball Trip Stats")
+class StageEvent extends Event {
+  @Label("Stage")
+  String stage;
+
+  @Label("Bytes")
+  @DataAmount
+  long bytes;
+}
@@ -0,0 +1,145 @@
+package com.github.baseballtrip;
+
+import static com.github.baseballtrip.StatSchema.BATTING;
+import static com.github.baseballtrip.StatSchema.PITCHING;
+import static com.github.baseballtrip.StatSchema.index;
+
+import com.google.common.collect.ImmutableTable;
+import com.google.common.collect.Table;
+import java.util.Arrays;
+
+/**
+ * A player's stats, stored as a flat {@code float[]} indexed by {@link StatSchema} slot. Stats that
+ * were never recorded are {@code NaN}, which keeps "0" distinct from "absent" without a separate
+ * presence mask.
+ *
+ * <p>Summing and deriving stats happens in place, so aggregating many lines doesn't allocate. Only
+ * this package can do so: outside it, a line is read-only, and new lines come from {@link
+ * #fromTable}.
+ */
+public final class StatLine {
+  private static final int AB = index(BATTING, "AB");
+  private static final int BATTING_H = index(BATTING, "H");
+  private static final int DOUBLES = index(BATTING, "2B");
+  private static final int TRIPLES = index(BATTING, "3B");
+  private static final int BATTING_HR = index(BATTING, "HR");
+  private static final int AVG = index(BATTING, "AVG");
+  private static final int TB = index(BATTING, "TB");
+  private static final int SLG = index(BATTING, "SLG");
+
+  private static final int IP = index(PITCHING, "IP");
+  private static final int PITCHING_H = index(PITCHING, "H");
+  private static final int ER = index(PITCHING, "ER");
+  private static final int PITCHING_BB = index(PITCHING, "BB");
+  private static final int PITCHING_SO = index(PITCHING, "SO");
+  private static final int ERA = index(PITCHING, "ERA");
+  private static final int WHIP = index(PITCHING, "WHIP");
+  private static final int K9 = index(PITCHING, "K/9");
+
+  private final float[] values;
+
+  StatLine() {
+    values = new float[StatSchema.SIZE];
+    Arrays.fill(values, Float.NaN);
+  }
+
+  private StatLine(float[] values) {
+    this.values = values;
+  }
+
+  public static StatLine fromTable(Table<String, String, Float> stats) {
+    StatLine result = new StatLine();
+
+    for (Table.Cell<String, String, Float> cell : stats.cellSet()) {
+      int index = index(cell.getRowKey(), cell.getColumnKey());
+
+      if (index >= 0) {
+        result.values[index] = cell.getValue();
+      }
+    }
+
+    return result;
+  }
+
+  public boolean has(int index) {
+    return !Float.isNaN(values[index]);
+  }
+
+  /** Returns the value in the given slot, or {@code NaN} if it was never recorded. */
+  public float get(int index) {
+    return values[index];
+  }
+
+  void set(int index, float value) {
+    values[index] = value;
+  }
+
+  /** Adds to the given slot, treating an absent value as 0. */
+  void add(int index, float value) {
+    values[index] = getOrZero(index) + value;
+  }
+
+  /** Adds every recorded stat in {@code other} to this line. */
+  void addAll(StatLine other) {
+    for (int i = 0; i < values.length; i++) {
+      if (other.has(i)) {
+        add(i, other.values[i]);
+      }
+    }
+  }
+
+  /** Computes AVG, TB and SLG for batters and ERA, WHIP and K/9 for pitchers, in place. */
+  void addDerivedStats() {
+    if (getOrZero(AB) > 0) {
+      float ab = getOrZero(AB);
+      float h = getOrZero(BATTING_H);
+      float doubles = getOrZero(DOUBLES);
+      float triples = getOrZero(TRIPLES);
+      float hrs = getOrZero(BATTING_HR);
+
+      float tb = h + doubles + 2 * triples + 3 * hrs;
+
+      values[AVG] = h / ab;
+      values[TB] = tb;
+      values[SLG] = tb / ab;
+    }
+
+    if (getOrZero(IP) > 0) {
+      float ip = getOrZero(IP);
+      float h = getOrZero(PITCHING_H);
+      float er = getOrZero(ER);
+      float bb = getOrZero(PITCHING_BB);
+      float so = getOrZero(PITCHING_SO);
+
+      values[ERA] = 9 * er / ip;
+      values[WHIP] = (bb + h) / ip;
+      values[K9] = 9 * so / ip;
+    }
+  }
+
+  private float getOrZero(int index) {
+    return has(index) ? values[index] : 0f;
+  }
+
+  public StatLine copy() {
+    return new StatLine(values.clone());
+  }
+
+  /** A table view of the recorded stats, keyed by group and then stat name. */
+  public ImmutableTable<String, String, Float> toTable() {
+    ImmutableTable.Builder<String, String, Float> result = ImmutableTable.builder();
+
+    for (int i = 0; i < values.length; i++) {
+      if (has(i)) {
+        result.put(StatSchema.group(i), StatSchema.stat(i), values[i]);
+      }
+    }
+
+    return result.build();
+  }
+
+  @Override
+  public String toString() {
+    return toTable().toString();
+  }
+}
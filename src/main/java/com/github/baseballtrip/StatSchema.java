@@ -0,0 +1,85 @@
+package com.github.baseballtrip;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hashing;
+
+/**
+ * The fixed set of stats tracked for each player, laid out as slots in a {@link StatLine}. Batting
+ * stats come first, followed by pitching stats. Stats that aren't listed here are dropped while
+ * parsing.
+ */
+public final class StatSchema {
+  public static final String BATTING = "BATTING";
+
+  public static final String PITCHING = "PITCHING";
+
+  public static final ImmutableList<String> BATTING_STATS =
+      ImmutableList.of(
+          // boxscore table
+          "AB", "R", "H", "RBI", "BB", "SO", "PA", "BA", "Pit", "Str", "WPA", "aLI", "WPA+",
+          "WPA-", "cWPA", "acLI", "RE24", "PO", "A",
+          // batting details
+          "2B", "3B", "HR", "SB", "CS", "SF", "SH", "HBP", "IBB", "GIDP", "E", "Pickoffs",
+          // derived
+          "AVG", "SLG", "TB");
+
+  public static final ImmutableList<String> PITCHING_STATS =
+      ImmutableList.of(
+          // boxscore table
+          "IP", "H", "R", "ER", "BB", "SO", "HR", "ERA", "BF", "Pit", "Str", "Ctct", "StS", "StL",
+          "GB", "FB", "LD", "Unk", "GSc", "IR", "IS", "WPA", "aLI", "cWPA", "acLI", "RE24",
+          // derived
+          "K/9", "WHIP");
+
+  public static final int SIZE = BATTING_STATS.size() + PITCHING_STATS.size();
+
+  /**
+   * Changes whenever slots are added, removed or reordered, so that anything persisted by slot
+   * index can detect that it is stale.
+   */
+  public static final int FINGERPRINT =
+      Hashing.murmur3_32_fixed()
+          .hashString(BATTING_STATS + "/" + PITCHING_STATS, UTF_8)
+          .asInt();
+
+  private static final ImmutableMap<String, ImmutableMap<String, Integer>> INDEXES =
+      ImmutableMap.of(
+          BATTING, indexesFrom(BATTING_STATS, 0),
+          PITCHING, indexesFrom(PITCHING_STATS, BATTING_STATS.size()));
+
+  private StatSchema() {}
+
+  private static ImmutableMap<String, Integer> indexesFrom(ImmutableList<String> stats, int start) {
+    ImmutableMap.Builder<String, Integer> result = ImmutableMap.builder();
+
+    for (int i = 0; i < stats.size(); i++) {
+      result.put(stats.get(i), start + i);
+    }
+
+    return result.build();
+  }
+
+  /** Returns the slot for the given stat, or -1 if it isn't part of the schema. */
+  public static int index(String group, String stat) {
+    ImmutableMap<String, Integer> groupIndexes = INDEXES.get(group);
+
+    if (groupIndexes == null) {
+      return -1;
+    }
+
+    return groupIndexes.getOrDefault(stat, -1);
+  }
+
+  public static String group(int index) {
+    return index < BATTING_STATS.size() ? BATTING : PITCHING;
+  }
+
+  public static String stat(int index) {
+    return index < BATTING_STATS.size()
+        ? BATTING_STATS.get(index)
+        : PITCHING_STATS.get(index - BATTING_STATS.size());
+  }
+}
@@ -0,0 +1,41 @@
+package com.github.baseballtrip;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Canonical instances of the strings that repeat across boxscores, such as player IDs, names and
+ * team codes, so that each is held once however many games it appears in. Symbols can also be
+ * given dense int handles, for aggregating by array index rather than by string.
+ *
+ * <p>One table is shared by the whole process, so handles agree between boxscores parsed, loaded
+ * from the store or replayed from a journal.
+ */
+final class SymbolTable {
+  static final SymbolTable SHARED = new SymbolTable();
+
+  private final ConcurrentHashMap<String, String> strings = new ConcurrentHashMap<>();
+
+  private final ConcurrentHashMap<String, Integer> handles = new ConcurrentHashMap<>();
+
+  private final AtomicInteger nextHandle = new AtomicInteger();
+
+  /** The canonical instance of {@code value}, or null if it's null. */
+  String intern(String value) {
+    if (value == null) {
+      return null;
+    }
+
+    String existing = strings.putIfAbsent(value, value);
+    return existing == null ? value : existing;
+  }
+
+  /** A handle for {@code symbol}, numbered from zero in the order symbols are first seen. */
+  int handle(String symbol) {
+    // looks the symbol up first, since that's usually enough and allocates nothing
+    Integer handle = handles.get(symbol);
+    return handle != null
+        ? handle
+        : handles.computeIfAbsent(symbol, s -> nextHandle.getAndIncrement());
+  }
+}
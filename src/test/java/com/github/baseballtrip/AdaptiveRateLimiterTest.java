@@ -0,0 +1,63 @@
+package com.github.baseballtrip;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Random;
+import org.junit.Test;
+
+public class AdaptiveRateLimiterTest {
+  private static final String HOST = "www.baseball-reference.com";
+
+  private final AdaptiveRateLimiter rateLimiter =
+      new AdaptiveRateLimiter(1, Duration.ofMinutes(10), new Random(0));
+
+  @Test
+  public void onThrottled_halvesRateDownToFloor() {
+    rateLimiter.onThrottled(HOST, Optional.empty());
+    assertThat(rateLimiter.rate(HOST)).isWithin(1e-9).of(.5);
+
+    for (int i = 0; i < 10; i++) {
+      rateLimiter.onThrottled(HOST, Optional.empty());
+    }
+
+    assertThat(rateLimiter.rate(HOST)).isWithin(1e-9).of(1 / 16d);
+    assertThat(rateLimiter.rate("other.example.com")).isWithin(1e-9).of(1);
+  }
+
+  @Test
+  public void onThrottled_backsOffExponentiallyUpToMax() {
+    Duration first = rateLimiter.onThrottled(HOST, Optional.empty());
+    Duration second = rateLimiter.onThrottled(HOST, Optional.empty());
+
+    assertThat(first).isAtLeast(Duration.ofMillis(2500));
+    assertThat(first).isAtMost(Duration.ofSeconds(5));
+    assertThat(second).isAtLeast(Duration.ofSeconds(5));
+    assertThat(second).isAtMost(Duration.ofSeconds(10));
+
+    for (int i = 0; i < 30; i++) {
+      assertThat(rateLimiter.onThrottled(HOST, Optional.empty()))
+          .isAtMost(Duration.ofMinutes(10));
+    }
+  }
+
+  @Test
+  public void onThrottled_honorsLongerRetryAfter() {
+    assertThat(rateLimiter.onThrottled(HOST, Optional.of(Duration.ofMinutes(30))))
+        .isEqualTo(Duration.ofMinutes(30));
+  }
+
+  @Test
+  public void onSuccess_rampsBackUpToCeiling() {
+    rateLimiter.onThrottled(HOST, Optional.empty());
+    rateLimiter.onSuccess(HOST);
+    assertThat(rateLimiter.rate(HOST)).isWithin(1e-9).of(.6);
+
+    for (int i = 0; i < 10; i++) {
+      rateLimiter.onSuccess(HOST);
+    }
+
+    assertThat(rateLimiter.rate(HOST)).isWithin(1e-9).of(1);
+  }
+}
@@ -0,0 +1,76 @@
+package com.github.baseballtrip;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth8.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import org.junit.Test;
+
+public class BaseballReferenceFetcherTest {
+  private static final String PAGE = "<html><body>Boxscore</body></html>";
+
+  @Test
+  public void decode_gzip() throws IOException {
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+    try (GZIPOutputStream output = new GZIPOutputStream(body)) {
+      output.write(PAGE.getBytes(UTF_8));
+    }
+
+    assertThat(decode("gzip", body.toByteArray())).isEqualTo(PAGE);
+  }
+
+  @Test
+  public void decode_deflate_zlibWrappedOrRaw() throws IOException {
+    for (boolean raw : new boolean[] {false, true}) {
+      ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+      try (DeflaterOutputStream output =
+          new DeflaterOutputStream(body, new Deflater(Deflater.DEFAULT_COMPRESSION, raw))) {
+        output.write(PAGE.getBytes(UTF_8));
+      }
+
+      assertThat(decode("deflate", body.toByteArray())).isEqualTo(PAGE);
+    }
+  }
+
+  @Test
+  public void decode_identity() throws IOException {
+    assertThat(decode("", PAGE.getBytes(UTF_8))).isEqualTo(PAGE);
+  }
+
+  @Test
+  public void decode_rejectsUnknownEncoding() {
+    assertThrows(IOException.class, () -> decode("br", PAGE.getBytes(UTF_8)));
+  }
+
+  @Test
+  public void parseRetryAfter_secondsOrDate() {
+    Clock clock = Clock.fixed(Instant.parse("2019-07-04T12:00:00Z"), ZoneOffset.UTC);
+
+    assertThat(BaseballReferenceFetcher.parseRetryAfter("120", clock))
+        .hasValue(Duration.ofMinutes(2));
+    assertThat(BaseballReferenceFetcher.parseRetryAfter("Thu, 04 Jul 2019 12:30:00 GMT", clock))
+        .hasValue(Duration.ofMinutes(30));
+    assertThat(BaseballReferenceFetcher.parseRetryAfter("Thu, 04 Jul 2019 11:30:00 GMT", clock))
+        .hasValue(Duration.ZERO);
+    assertThat(BaseballReferenceFetcher.parseRetryAfter("soon", clock)).isEmpty();
+  }
+
+  private static String decode(String contentEncoding, byte[] body) throws IOException {
+    try (InputStream page = BaseballReferenceFetcher.decode(contentEncoding, body)) {
+      return new String(page.readAllBytes(), UTF_8);
+    }
+  }
+}
@@ -3,6 +3,7 @@ package com.github.baseballtrip;
 import static com.google.common.collect.Multimaps.index;
 import static com.google.common.io.Resources.getResource;
 import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth8.assertThat;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 import com.google.common.collect.ImmutableList;
@@ -12,6 +13,7 @@ import com.google.common.collect.ImmutableTable;
 import com.google.common.io.Resources;
 import com.google.common.truth.Truth;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.time.LocalDate;
@@ -44,6 +46,17 @@ public class BaseballReferenceScraperTest {
     Truth.assertThat(matchup.date).isEqualTo(LocalDate.of(2009, 8, 2));
   }
 
+  @Test
+  public void parseBoxscore_stopsAtLinescoreWhenMatchupFiltered()
+      throws URISyntaxException, IOException {
+    URI uri = uriForResourceName("CHA200908020.shtml");
+
+    try (InputStream page = uri.toURL().openStream()) {
+      assertThat(scraper.parseBoxscore(uri, page, matchup -> !matchup.away.equals("NYY")))
+          .isEmpty();
+    }
+  }
+
   @Test
   public void parseBoxscore_parsesStats_batting() throws URISyntaxException, IOException {
     assertThat(yanksSoxBoxscore.stats).hasSize(41);
@@ -53,8 +66,8 @@ public class BaseballReferenceScraperTest {
     PlayerStat cabrera = cabreraStats.get(0);
     Truth.assertThat(cabrera.playerName).isEqualTo("Melky Cabrera");
 
-    Truth.assertThat(cabrera.stats.rowKeySet()).hasSize(1);
-    ImmutableMap<String, Float> batting = cabrera.stats.row("BATTING");
+    Truth.assertThat(cabrera.stats().rowKeySet()).hasSize(1);
+    ImmutableMap<String, Float> batting = cabrera.stats().row("BATTING");
     assertThat(batting).containsEntry("AB", 5f);
     assertThat(batting).containsEntry("R", 3f);
     assertThat(batting).containsEntry("H", 4f);
@@ -70,12 +83,12 @@ public class BaseballReferenceScraperTest {
     assertThat(hughesStats).hasSize(2);
     PlayerStat hughes =
         hughesStats.stream()
-            .filter(stat -> stat.stats.rowKeySet().contains("PITCHING"))
+            .filter(stat -> stat.stats().rowKeySet().contains("PITCHING"))
             .findFirst()
             .orElse(null);
     Truth.assertThat(hughes).isNotNull();
 
-    ImmutableMap<String, Float> pitching = hughes.stats.row("PITCHING");
+    ImmutableMap<String, Float> pitching = hughes.stats().row("PITCHING");
     assertThat(pitching).containsEntry("IP", 2 / 3f);
     assertThat(pitching).containsEntry("BB", 1f);
     assertThat(pitching).containsEntry("BF", 3f);
@@ -83,6 +96,15 @@ public class BaseballReferenceScraperTest {
     assertThat(pitching).containsEntry("R", 0f);
   }
 
+  @Test
+  public void parseBoxscore_assignsTeamsInTableOrder() {
+    Truth.assertThat(yanksSoxStatsByPlayerId.get("cabreme01").get(0).team).isEqualTo("NYY");
+    assertThat(yanksSoxStatsByPlayerId.get("hugheph01").stream().map(stat -> stat.team))
+        .containsExactly("NYY", "NYY");
+    assertThat(yanksSoxBoxscore.stats.stream().map(stat -> stat.team).distinct())
+        .containsExactly("NYY", "CHW");
+  }
+
   @Test
   public void parseBoxscore_parsesStats_pitching_derived() {
     ImmutableTable<String, String, Float> hughes =
@@ -112,4 +134,54 @@ public class BaseballReferenceScraperTest {
         PlayerStat.sumAndAddDerived(byPlayerId.get("bettsmo01"));
     assertThat(betts.get("BATTING", "HR")).isEqualTo(3f);
   }
+
+  /** The expected CSVs were written by the DOM-based parser that the streaming one replaced. */
+  @Test
+  public void parseBoxscore_matchesDomParserOutput() throws URISyntaxException, IOException {
+    for (String game : ImmutableList.of("CHA200908020", "BOS201805020")) {
+      Boxscore boxscore = scraper.parseBoxscore(uriForResourceName(game + ".shtml"));
+      StringBuilder csv = new StringBuilder();
+
+      for (String[] row : new BaseballCsvFormatter().toCsvCells(ImmutableList.of(boxscore))) {
+        csv.append(String.join(",", row)).append('\n');
+      }
+
+      Truth.assertThat(csv.toString())
+          .isEqualTo(Resources.toString(getResource(game + ".dom.csv"), UTF_8));
+    }
+  }
+
+  @Test
+  public void parseBoxscore_matchesBattingDetailsWithinTeam() {
+    String page =
+        "<table class='linescore'><tbody>"
+            + "<tr><td></td><td><a href='/teams/KCR/2018.shtml'>KC</a></td></tr>"
+            + "<tr><td></td><td><a href='/teams/BOS/2018.shtml'>BOS</a></td></tr>"
+            + "</tbody></table>"
+            + battingBlock("smithjo01")
+            + battingBlock("smithjo02");
+
+    Boxscore boxscore =
+        scraper.parseBoxscore(
+            URI.create("https://www.baseball-reference.com/boxes/BOS/BOS201805020.shtml"), page);
+
+    assertThat(boxscore.stats).hasSize(2);
+    assertThat(boxscore.stats.get(0).stats().get("BATTING", "HR")).isEqualTo(1f);
+    assertThat(boxscore.stats.get(1).stats().get("BATTING", "HR")).isEqualTo(2f);
+  }
+
+  private static String battingBlock(String playerId) {
+    int homeRuns = playerId.endsWith("1") ? 1 : 2;
+    return "<div class='commented'><!--"
+        + "<table class='sortable stats_table'>"
+        + "<thead><tr><th aria-label=\"Batting\">Batting</th><th>AB</th></tr></thead>"
+        + "<tbody><tr><th><a href='/players/s/"
+        + playerId
+        + ".shtml'>John Smith</a></th><td>4</td></tr></tbody>"
+        + "</table>"
+        + "<div class='footer no_hide_long'><div><strong>HR:</strong> John Smith "
+        + homeRuns
+        + " (1, off Someone).</div></div>"
+        + "--></div>";
+  }
 }
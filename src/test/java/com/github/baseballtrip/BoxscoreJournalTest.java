@@ -0,0 +1,98 @@
+package com.github.baseballtrip;
+
+import static com.google.common.io.Resources.getResource;
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth8.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+
+import com.google.common.io.Resources;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BoxscoreJournalTest {
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final BaseballReferenceScraper scraper =
+      new BaseballReferenceScraper(url -> Resources.toString(url.toURL(), UTF_8));
+
+  @Test
+  public void open_replaysAppendedBoxscores() throws IOException, URISyntaxException {
+    URI chw = getResource("CHA200908020.shtml").toURI();
+    URI bos = getResource("BOS201805020.shtml").toURI();
+    Path file = temporaryFolder.getRoot().toPath().resolve("journal");
+    Boxscore boxscore = scraper.parseBoxscore(chw);
+
+    try (BoxscoreJournal journal = BoxscoreJournal.open(file, 1)) {
+      journal.append(chw, boxscore);
+    }
+
+    try (BoxscoreJournal journal = BoxscoreJournal.open(file, 1)) {
+      assertThat(journal.size()).isEqualTo(1);
+      assertThat(journal.completed(chw).get().toString()).isEqualTo(boxscore.toString());
+      assertThat(journal.completed(bos)).isEmpty();
+    }
+  }
+
+  @Test
+  public void completed_readsBackRecordsAppendedThisRun() throws IOException, URISyntaxException {
+    URI chw = getResource("CHA200908020.shtml").toURI();
+    URI bos = getResource("BOS201805020.shtml").toURI();
+    Path file = temporaryFolder.getRoot().toPath().resolve("journal");
+    Boxscore chwBoxscore = scraper.parseBoxscore(chw);
+    Boxscore bosBoxscore = scraper.parseBoxscore(bos);
+
+    try (BoxscoreJournal journal = BoxscoreJournal.open(file, 1)) {
+      journal.append(chw, chwBoxscore);
+      journal.append(bos, bosBoxscore);
+
+      assertThat(journal.contains(chw)).isTrue();
+      assertThat(journal.completed(bos).get().toString()).isEqualTo(bosBoxscore.toString());
+      assertThat(journal.completed(chw).get().toString()).isEqualTo(chwBoxscore.toString());
+    }
+  }
+
+  @Test
+  public void open_dropsTornRecord() throws IOException, URISyntaxException {
+    URI chw = getResource("CHA200908020.shtml").toURI();
+    URI bos = getResource("BOS201805020.shtml").toURI();
+    Path file = temporaryFolder.getRoot().toPath().resolve("journal");
+
+    try (BoxscoreJournal journal = BoxscoreJournal.open(file, 1)) {
+      journal.append(chw, scraper.parseBoxscore(chw));
+    }
+
+    // a record header whose body never made it to disk
+    Files.write(file, new byte[] {0, 0, 1, 0, 1, 2, 3}, APPEND);
+
+    try (BoxscoreJournal journal = BoxscoreJournal.open(file, 1)) {
+      assertThat(journal.size()).isEqualTo(1);
+      journal.append(bos, scraper.parseBoxscore(bos));
+    }
+
+    try (BoxscoreJournal journal = BoxscoreJournal.open(file, 1)) {
+      assertThat(journal.completed(chw)).isPresent();
+      assertThat(journal.completed(bos)).isPresent();
+    }
+  }
+
+  @Test
+  public void open_discardsOtherParserVersions() throws IOException, URISyntaxException {
+    URI chw = getResource("CHA200908020.shtml").toURI();
+    Path file = temporaryFolder.getRoot().toPath().resolve("journal");
+
+    try (BoxscoreJournal journal = BoxscoreJournal.open(file, 1)) {
+      journal.append(chw, scraper.parseBoxscore(chw));
+    }
+
+    try (BoxscoreJournal journal = BoxscoreJournal.open(file, 2)) {
+      assertThat(journal.size()).isEqualTo(0);
+    }
+  }
+}
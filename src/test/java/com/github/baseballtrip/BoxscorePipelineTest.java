@@ -0,0 +1,137 @@
+package com.github.baseballtrip;
+
+import static com.google.common.io.Resources.getResource;
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Resources;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.junit.Test;
+
+public class BoxscorePipelineTest {
+  @Test
+  public void run_deliversBoxscoresInInputOrder() throws IOException, URISyntaxException {
+    URI slow = getResource("CHA200908020.shtml").toURI();
+    URI fast = getResource("BOS201805020.shtml").toURI();
+    HttpFetcher fetcher =
+        uri -> {
+          if (uri.equals(slow)) {
+            try {
+              Thread.sleep(200);
+            } catch (InterruptedException e) {
+              throw new IOException(e);
+            }
+          }
+          return Resources.toString(uri.toURL(), UTF_8);
+        };
+    List<URI> delivered = new ArrayList<>();
+    List<String> homeTeams = new ArrayList<>();
+
+    new BoxscorePipeline(fetcher, BoxscoreStore.NONE, 4, 2)
+        .run(
+            ImmutableList.of(slow, fast, fast, slow, fast),
+            (uri, boxscore) -> {
+              delivered.add(uri);
+              homeTeams.add(boxscore.matchup.home);
+            });
+
+    assertThat(delivered).containsExactly(slow, fast, fast, slow, fast).inOrder();
+    assertThat(homeTeams).containsExactly("CHW", "BOS", "BOS", "CHW", "BOS").inOrder();
+  }
+
+  @Test
+  public void run_propagatesFetchFailures() throws URISyntaxException {
+    URI uri = getResource("CHA200908020.shtml").toURI();
+    HttpFetcher fetcher =
+        ignored -> {
+          throw new IOException("timed out");
+        };
+
+    IOException e =
+        assertThrows(
+            IOException.class,
+            () ->
+                new BoxscorePipeline(fetcher, BoxscoreStore.NONE, 2, 1)
+                    .run(ImmutableList.of(uri), (u, boxscore) -> {}));
+    assertThat(e).hasCauseThat().hasMessageThat().isEqualTo("timed out");
+  }
+
+  @Test
+  public void run_continuesPastFailuresTheSinkAccepts() throws IOException, URISyntaxException {
+    URI good = getResource("CHA200908020.shtml").toURI();
+    URI bad = URI.create("https://example.com/boxes/CHA/CHA200908030.shtml");
+    HttpFetcher fetcher =
+        uri -> {
+          if (uri.equals(bad)) {
+            throw new IOException("timed out");
+          }
+          return Resources.toString(uri.toURL(), UTF_8);
+        };
+    List<URI> delivered = new ArrayList<>();
+    List<URI> failed = new ArrayList<>();
+
+    new BoxscorePipeline(fetcher, BoxscoreStore.NONE, 2, 1)
+        .run(
+            ImmutableList.of(good, bad, good),
+            new BoxscorePipeline.Sink() {
+              @Override
+              public void accept(URI uri, Boxscore boxscore) {
+                delivered.add(uri);
+              }
+
+              @Override
+              public void failed(URI uri, Exception e) {
+                failed.add(uri);
+              }
+            });
+
+    assertThat(delivered).containsExactly(good, good);
+    assertThat(failed).containsExactly(bad);
+  }
+
+  @Test
+  public void run_reusesStoredBoxscoreWhenPageUnchanged() throws IOException, URISyntaxException {
+    URI uri = getResource("CHA200908020.shtml").toURI();
+    Boxscore stored =
+        new Boxscore(new Matchup(LocalDate.of(2009, 8, 2), "NYY", "CHW"), ImmutableList.of());
+    HttpFetcher unchanged =
+        new HttpFetcher() {
+          @Override
+          public String fetch(URI uri) {
+            throw new UnsupportedOperationException();
+          }
+
+          @Override
+          public Optional<InputStream> fetchIfChanged(URI uri) {
+            return Optional.empty();
+          }
+        };
+    BoxscoreStore store =
+        new BoxscoreStore() {
+          @Override
+          public Optional<Boxscore> load(URI uri) {
+            return Optional.of(stored);
+          }
+
+          @Override
+          public void save(URI uri, Boxscore boxscore) {
+            throw new UnsupportedOperationException();
+          }
+        };
+    List<Boxscore> delivered = new ArrayList<>();
+
+    new BoxscorePipeline(unchanged, store, 2, 1, u -> true, matchup -> true)
+        .run(ImmutableList.of(uri), (u, boxscore) -> delivered.add(boxscore));
+
+    assertThat(delivered).containsExactly(stored);
+  }
+}
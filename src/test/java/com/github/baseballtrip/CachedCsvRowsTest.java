@@ -0,0 +1,62 @@
+package com.github.baseballtrip;
+
+import static com.github.baseballtrip.StatSchema.BATTING;
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableTable;
+import com.google.common.collect.Iterators;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.Iterator;
+import org.junit.Test;
+
+public class CachedCsvRowsTest {
+  private final RollupAggregator aggregator =
+      new RollupAggregator(EnumSet.of(Rollup.PLAYER, Rollup.VENUE));
+
+  private final BaseballCsvFormatter formatter = new BaseballCsvFormatter();
+
+  @Test
+  public void rows_reformatsOnlyGroupsThatChanged() {
+    CachedCsvRows rows = new CachedCsvRows(Rollup.PLAYER);
+    aggregator.add(game("NYY", hits("jeterde01", "Derek Jeter", 2), hits("ortizda01", "Ortiz", 1)));
+
+    assertThat(toArray(rows.rows(aggregator)))
+        .isEqualTo(toArray(formatter.toCsvRows(Rollup.PLAYER, aggregator)));
+    assertThat(rows.reformatted()).isEqualTo(2);
+
+    aggregator.add(game("BOS", hits("jeterde01", "Derek Jeter", 3), hits("judgeaa01", "Judge", 1)));
+
+    assertThat(toArray(rows.rows(aggregator)))
+        .isEqualTo(toArray(formatter.toCsvRows(Rollup.PLAYER, aggregator)));
+    assertThat(rows.reformatted()).isEqualTo(2);
+
+    Iterators.size(rows.rows(aggregator));
+    assertThat(rows.reformatted()).isEqualTo(0);
+  }
+
+  @Test
+  public void rows_formatsAnyRollup() {
+    CachedCsvRows rows = new CachedCsvRows(Rollup.VENUE);
+    aggregator.add(game("NYY", hits("jeterde01", "Derek Jeter", 2)));
+    aggregator.add(game("BOS", hits("jeterde01", "Derek Jeter", 1)));
+
+    assertThat(toArray(rows.rows(aggregator)))
+        .isEqualTo(toArray(formatter.toCsvRows(Rollup.VENUE, aggregator)));
+  }
+
+  private static String[][] toArray(Iterator<String[]> rows) {
+    return Iterators.toArray(rows, String[].class);
+  }
+
+  private static Boxscore game(String home, PlayerStat... stats) {
+    return new Boxscore(
+        new Matchup(LocalDate.of(2018, 5, 1), "KCR", home), ImmutableList.copyOf(stats));
+  }
+
+  private static PlayerStat hits(String playerId, String name, float hits) {
+    return new PlayerStat(
+        playerId, name, "NYY", StatLine.fromTable(ImmutableTable.of(BATTING, "H", hits)));
+  }
+}
@@ -0,0 +1,221 @@
+package com.github.baseballtrip;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth8.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CachingHttpFetcherTest {
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final List<URI> fetchedUris = new ArrayList<>();
+
+  private final HttpFetcher countingFetcher =
+      uri -> {
+        fetchedUris.add(uri);
+        return "page for " + uri;
+      };
+
+  private static final URI GAME_1 = URI.create("https://example.com/boxes/CHA/CHA200908020.shtml");
+  private static final URI GAME_2 = URI.create("https://example.com/boxes/BOS/BOS201805020.shtml");
+  private static final URI GAME_3 = URI.create("https://example.com/boxes/NYA/NYA201907040.shtml");
+
+  @Test
+  public void fetch_servesRepeatedFetchesFromCache() throws IOException {
+    CachingHttpFetcher fetcher =
+        new CachingHttpFetcher(countingFetcher, temporaryFolder.getRoot().toPath(), 1 << 20);
+
+    assertThat(fetcher.fetch(GAME_1)).isEqualTo("page for " + GAME_1);
+    assertThat(fetcher.fetch(GAME_1)).isEqualTo("page for " + GAME_1);
+    assertThat(fetchedUris).containsExactly(GAME_1);
+  }
+
+  @Test
+  public void fetch_reusesCacheAcrossInstances() throws IOException {
+    Path cacheDir = temporaryFolder.getRoot().toPath();
+    new CachingHttpFetcher(countingFetcher, cacheDir, 1 << 20).fetch(GAME_1);
+
+    HttpFetcher offline =
+        uri -> {
+          throw new IOException("offline");
+        };
+    CachingHttpFetcher fetcher = new CachingHttpFetcher(offline, cacheDir, 1 << 20);
+
+    assertThat(fetcher.fetch(GAME_1)).isEqualTo("page for " + GAME_1);
+    assertThrows(IOException.class, () -> fetcher.fetch(GAME_2));
+  }
+
+  @Test
+  public void fetch_evictsLeastRecentlyUsedPage() throws IOException {
+    // each compressed page is about 75 bytes, so the cache only has room for two of them
+    CachingHttpFetcher fetcher =
+        new CachingHttpFetcher(countingFetcher, temporaryFolder.getRoot().toPath(), 150);
+
+    fetcher.fetch(GAME_1);
+    fetcher.fetch(GAME_2);
+    fetcher.fetch(GAME_1);
+    fetcher.fetch(GAME_3);
+    fetcher.fetch(GAME_1);
+    fetcher.fetch(GAME_2);
+
+    assertThat(fetchedUris).containsExactly(GAME_1, GAME_2, GAME_3, GAME_2).inOrder();
+  }
+
+  @Test
+  public void fetchStream_servesCachedPageAsStream() throws IOException {
+    CachingHttpFetcher fetcher =
+        new CachingHttpFetcher(countingFetcher, temporaryFolder.getRoot().toPath(), 1 << 20);
+    fetcher.fetch(GAME_1);
+
+    try (InputStream page = fetcher.fetchStream(GAME_1)) {
+      assertThat(new String(page.readAllBytes(), UTF_8)).isEqualTo("page for " + GAME_1);
+    }
+
+    assertThat(fetchedUris).containsExactly(GAME_1);
+  }
+
+  @Test
+  public void fetchIfChanged_revalidatesWithStoredValidators() throws IOException {
+    List<PageValidators> sentValidators = new ArrayList<>();
+    String[] etag = {"\"v1\""};
+    HttpFetcher conditionalFetcher =
+        new HttpFetcher() {
+          @Override
+          public String fetch(URI uri) {
+            throw new UnsupportedOperationException();
+          }
+
+          @Override
+          public Optional<FetchedPage> fetchIfModified(URI uri, PageValidators validators) {
+            sentValidators.add(validators);
+
+            if (etag[0].equals(validators.etag)) {
+              return Optional.empty();
+            }
+
+            return Optional.of(
+                new FetchedPage(
+                    new ByteArrayInputStream(("page " + etag[0]).getBytes(UTF_8)),
+                    new PageValidators(etag[0], null)));
+          }
+        };
+    CachingHttpFetcher fetcher =
+        new CachingHttpFetcher(
+            conditionalFetcher, temporaryFolder.getRoot().toPath(), 1 << 20, GAME_1::equals);
+
+    assertThat(fetcher.fetchIfChanged(GAME_1)).isPresent();
+    assertThat(fetcher.fetchIfChanged(GAME_1)).isEmpty();
+    assertThat(fetcher.fetch(GAME_1)).isEqualTo("page \"v1\"");
+
+    etag[0] = "\"v2\"";
+    assertThat(fetcher.fetch(GAME_1)).isEqualTo("page \"v2\"");
+    assertThat(sentValidators.stream().map(validators -> validators.etag))
+        .containsExactly(null, "\"v1\"", "\"v1\"", "\"v1\"")
+        .inOrder();
+  }
+
+  @Test
+  public void fetchIfChanged_neverRevalidatesOutsideWindow() throws IOException {
+    CachingHttpFetcher fetcher =
+        new CachingHttpFetcher(
+            countingFetcher, temporaryFolder.getRoot().toPath(), 1 << 20, GAME_1::equals);
+
+    assertThat(fetcher.fetchIfChanged(GAME_2)).isPresent();
+    assertThat(fetcher.fetchIfChanged(GAME_2)).isEmpty();
+    assertThat(fetchedUris).containsExactly(GAME_2);
+  }
+
+  @Test
+  public void fetch_coalescesConcurrentDownloads() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger downloads = new AtomicInteger();
+    HttpFetcher slowFetcher =
+        uri -> {
+          downloads.incrementAndGet();
+          Uninterruptibles.awaitUninterruptibly(release);
+          return "page for " + uri;
+        };
+    CachingHttpFetcher fetcher =
+        new CachingHttpFetcher(slowFetcher, temporaryFolder.getRoot().toPath(), 1 << 20);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    try {
+      List<Future<String>> pages = new ArrayList<>();
+
+      for (int i = 0; i < 4; i++) {
+        pages.add(executor.submit(() -> fetcher.fetch(GAME_1)));
+      }
+
+      Thread.sleep(100);
+      release.countDown();
+
+      for (Future<String> page : pages) {
+        assertThat(page.get()).isEqualTo("page for " + GAME_1);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertThat(downloads.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void fetch_downloadsOtherPagesWhileOneIsSlow() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    HttpFetcher slowFetcher =
+        uri -> {
+          if (uri.equals(GAME_1)) {
+            Uninterruptibles.awaitUninterruptibly(release);
+          }
+
+          return "page for " + uri;
+        };
+    CachingHttpFetcher fetcher =
+        new CachingHttpFetcher(slowFetcher, temporaryFolder.getRoot().toPath(), 1 << 20);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    try {
+      Future<String> slowPage = executor.submit(() -> fetcher.fetch(GAME_1));
+      Thread.sleep(100);
+
+      assertThat(fetcher.fetch(GAME_2)).isEqualTo("page for " + GAME_2);
+      assertThat(slowPage.isDone()).isFalse();
+
+      release.countDown();
+      assertThat(slowPage.get()).isEqualTo("page for " + GAME_1);
+    } finally {
+      release.countDown();
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void fetch_readsPagesCachedByOtherInstances() throws IOException {
+    Path cacheDir = temporaryFolder.getRoot().toPath();
+    CachingHttpFetcher first = new CachingHttpFetcher(countingFetcher, cacheDir, 1 << 20);
+    CachingHttpFetcher second = new CachingHttpFetcher(countingFetcher, cacheDir, 1 << 20);
+
+    first.fetch(GAME_1);
+
+    assertThat(second.fetch(GAME_1)).isEqualTo("page for " + GAME_1);
+    assertThat(fetchedUris).containsExactly(GAME_1);
+  }
+}
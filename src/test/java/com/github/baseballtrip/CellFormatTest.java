@@ -0,0 +1,63 @@
+package com.github.baseballtrip;
+
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+import java.util.Random;
+import org.junit.Test;
+
+public class CellFormatTest {
+  private final DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(Locale.US);
+
+  @Test
+  public void append_matchesDecimalFormat() {
+    Random random = new Random(11);
+
+    for (int i = 0; i < 100_000; i++) {
+      float value =
+          i % 2 == 0 ? random.nextInt(20_000) / 8f : random.nextFloat() * 10_000_000 / 7;
+      assertMatchesDecimalFormat(value);
+    }
+  }
+
+  @Test
+  public void append_roundsTiesHalfEven() {
+    for (float value : new float[] {0, .0005f, .0015f, .125f, .375f, 1.005f, 2.5f, 0.25f, 0.05f}) {
+      assertMatchesDecimalFormat(value);
+    }
+  }
+
+  @Test
+  public void append_matchesDecimalFormatOutsideFastRange() {
+    for (float value : new float[] {-1.5f, 1e13f, Float.POSITIVE_INFINITY}) {
+      assertMatchesDecimalFormat(value);
+    }
+  }
+
+  @Test
+  public void append_writesInningsAsOuts() {
+    assertWithMessage("IP").that(format(CellFormat.INNINGS, 6 + 2 / 3f)).isEqualTo("6.2");
+    assertWithMessage("IP").that(format(CellFormat.INNINGS, 1 / 3f)).isEqualTo("0.1");
+    assertWithMessage("IP").that(format(CellFormat.INNINGS, 9f)).isEqualTo("9.0");
+    assertWithMessage("IP").that(format(CellFormat.INNINGS, 58.999996f)).isEqualTo("59.0");
+  }
+
+  private void assertMatchesDecimalFormat(float value) {
+    for (CellFormat format :
+        new CellFormat[] {CellFormat.COUNT, CellFormat.AVERAGE, CellFormat.ERA}) {
+      String pattern =
+          format == CellFormat.COUNT ? ",##0.#" : format == CellFormat.AVERAGE ? ".000" : "0.00";
+      assertWithMessage("%s of %s", pattern, value)
+          .that(format(format, value))
+          .isEqualTo(new DecimalFormat(pattern, symbols).format(value));
+    }
+  }
+
+  private String format(CellFormat format, float value) {
+    StringBuilder out = new StringBuilder();
+    format.append(value, symbols, out);
+    return out.toString();
+  }
+}
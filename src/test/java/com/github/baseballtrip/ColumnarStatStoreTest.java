@@ -0,0 +1,143 @@
+package com.github.baseballtrip;
+
+import static com.google.common.io.Resources.getResource;
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Resources;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ColumnarStatStoreTest {
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final BaseballReferenceScraper scraper =
+      new BaseballReferenceScraper(url -> Resources.toString(url.toURL(), UTF_8));
+
+  private final BaseballCsvFormatter formatter = new BaseballCsvFormatter();
+
+  @Test
+  public void aggregate_matchesAggregatingBoxscores() throws IOException, URISyntaxException {
+    ColumnarStatStore store = new ColumnarStatStore(temporaryFolder.getRoot().toPath());
+    URI yanksSox = getResource("CHA200908020.shtml").toURI();
+    URI royalsSox = getResource("BOS201805020.shtml").toURI();
+    RollupAggregator expected = new RollupAggregator(EnumSet.allOf(Rollup.class));
+
+    try (ColumnarStatStore.SegmentWriter segment = store.newSegment()) {
+      segment.add(yanksSox, scraper.parseBoxscore(yanksSox));
+      expected.add(scraper.parseBoxscore(yanksSox));
+    }
+
+    try (ColumnarStatStore.SegmentWriter segment = store.newSegment()) {
+      segment.add(royalsSox, scraper.parseBoxscore(royalsSox));
+      expected.add(scraper.parseBoxscore(royalsSox));
+    }
+
+    RollupAggregator actual = new RollupAggregator(EnumSet.allOf(Rollup.class));
+    store.aggregate(uri -> true, matchup -> true, actual);
+
+    for (Rollup rollup : Rollup.values()) {
+      assertThat(formatter.toCsvCells(rollup, actual))
+          .isEqualTo(formatter.toCsvCells(rollup, expected));
+    }
+  }
+
+  @Test
+  public void newSegment_writesASegmentEachTimeItFillsUp() throws IOException, URISyntaxException {
+    ColumnarStatStore store = new ColumnarStatStore(temporaryFolder.getRoot().toPath());
+    URI yanksSox = getResource("CHA200908020.shtml").toURI();
+    URI royalsSox = getResource("BOS201805020.shtml").toURI();
+    RollupAggregator expected = new RollupAggregator(EnumSet.allOf(Rollup.class));
+
+    // each game fills a segment on its own
+    try (ColumnarStatStore.SegmentWriter segment = store.newSegment(1)) {
+      segment.add(yanksSox, scraper.parseBoxscore(yanksSox));
+
+      try (Stream<?> files = Files.list(temporaryFolder.getRoot().toPath())) {
+        assertThat(files.count()).isEqualTo(1);
+      }
+
+      segment.add(royalsSox, scraper.parseBoxscore(royalsSox));
+    }
+
+    expected.add(scraper.parseBoxscore(yanksSox));
+    expected.add(scraper.parseBoxscore(royalsSox));
+    RollupAggregator actual = new RollupAggregator(EnumSet.allOf(Rollup.class));
+    store.aggregate(uri -> true, matchup -> true, actual);
+
+    for (Rollup rollup : Rollup.values()) {
+      assertThat(formatter.toCsvCells(rollup, actual))
+          .isEqualTo(formatter.toCsvCells(rollup, expected));
+    }
+
+    try (Stream<?> files = Files.list(temporaryFolder.getRoot().toPath())) {
+      assertThat(files.count()).isEqualTo(2);
+    }
+  }
+
+  @Test
+  public void newSegment_skipsGamesAlreadyStored() throws IOException, URISyntaxException {
+    ColumnarStatStore store = new ColumnarStatStore(temporaryFolder.getRoot().toPath());
+    URI uri = getResource("CHA200908020.shtml").toURI();
+
+    for (int i = 0; i < 2; i++) {
+      try (ColumnarStatStore.SegmentWriter segment = store.newSegment()) {
+        segment.add(uri, scraper.parseBoxscore(uri));
+      }
+    }
+
+    try (Stream<?> files = Files.list(temporaryFolder.getRoot().toPath())) {
+      assertThat(files.count()).isEqualTo(1);
+    }
+  }
+
+  @Test
+  public void aggregate_readsGamesWrittenByConcurrentWritersOnce()
+      throws IOException, URISyntaxException {
+    ColumnarStatStore store = new ColumnarStatStore(temporaryFolder.getRoot().toPath());
+    URI uri = getResource("CHA200908020.shtml").toURI();
+
+    // neither writer sees the other's game, so both publish a segment
+    try (ColumnarStatStore.SegmentWriter first = store.newSegment();
+        ColumnarStatStore.SegmentWriter second = store.newSegment()) {
+      first.add(uri, scraper.parseBoxscore(uri));
+      second.add(uri, scraper.parseBoxscore(uri));
+    }
+
+    RollupAggregator actual = new RollupAggregator();
+    store.aggregate(u -> true, matchup -> true, actual);
+
+    assertThat(formatter.toCsvCells(actual))
+        .isEqualTo(formatter.toCsvCells(ImmutableList.of(scraper.parseBoxscore(uri))));
+
+    try (Stream<Path> files = Files.list(temporaryFolder.getRoot().toPath())) {
+      assertThat(files.map(file -> file.getFileName().toString()).collect(Collectors.toList()))
+          .containsExactly("segment-000000000.seg", "segment-000000001.seg");
+    }
+  }
+
+  @Test
+  public void aggregate_skipsGamesTheFiltersReject() throws IOException, URISyntaxException {
+    ColumnarStatStore store = new ColumnarStatStore(temporaryFolder.getRoot().toPath());
+    URI uri = getResource("CHA200908020.shtml").toURI();
+
+    try (ColumnarStatStore.SegmentWriter segment = store.newSegment()) {
+      segment.add(uri, scraper.parseBoxscore(uri));
+    }
+
+    RollupAggregator actual = new RollupAggregator();
+    store.aggregate(u -> true, matchup -> !matchup.away.equals("NYY"), actual);
+
+    assertThat(actual.players()).isEmpty();
+  }
+}
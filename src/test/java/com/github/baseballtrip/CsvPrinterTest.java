@@ -0,0 +1,24 @@
+package com.github.baseballtrip;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.StringWriter;
+import java.util.List;
+import org.junit.Test;
+
+public class CsvPrinterTest {
+  @Test
+  public void printRows_quotesEveryCellAndDoublesQuotes() throws Exception {
+    StringWriter output = new StringWriter();
+
+    new CsvPrinter(output)
+        .printRows(
+            List.of(new String[] {"player", "AB"}, new String[] {"Ken \"Hawk\" Harrelson", ""})
+                .iterator());
+
+    String separator = System.lineSeparator();
+    assertThat(output.toString())
+        .isEqualTo(
+            "\"player\",\"AB\"" + separator + "\"Ken \"\"Hawk\"\" Harrelson\",\"\"" + separator);
+  }
+}
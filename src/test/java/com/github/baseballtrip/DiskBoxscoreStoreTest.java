@@ -0,0 +1,47 @@
+package com.github.baseballtrip;
+
+import static com.google.common.io.Resources.getResource;
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth8.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.io.Resources;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.util.Optional;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DiskBoxscoreStoreTest {
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final BaseballReferenceScraper scraper =
+      new BaseballReferenceScraper(url -> Resources.toString(url.toURL(), UTF_8));
+
+  @Test
+  public void load_returnsSavedBoxscore() throws IOException, URISyntaxException {
+    URI uri = getResource("CHA200908020.shtml").toURI();
+    Boxscore boxscore = scraper.parseBoxscore(uri);
+    DiskBoxscoreStore store = new DiskBoxscoreStore(temporaryFolder.getRoot().toPath(), 1);
+
+    store.save(uri, boxscore);
+    Optional<Boxscore> loaded = store.load(uri);
+
+    assertThat(loaded).isPresent();
+    assertThat(loaded.get().toString()).isEqualTo(boxscore.toString());
+  }
+
+  @Test
+  public void load_ignoresOtherParserVersions() throws IOException, URISyntaxException {
+    URI uri = getResource("CHA200908020.shtml").toURI();
+    Path storeDir = temporaryFolder.getRoot().toPath();
+    new DiskBoxscoreStore(storeDir, 1).save(uri, scraper.parseBoxscore(uri));
+
+    assertThat(new DiskBoxscoreStore(storeDir, 2).load(uri)).isEmpty();
+    assertThat(new DiskBoxscoreStore(storeDir, 1).load(getResource("BOS201805020.shtml").toURI()))
+        .isEmpty();
+  }
+}
@@ -0,0 +1,57 @@
+package com.github.baseballtrip;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableSet;
+import java.net.URI;
+import java.time.LocalDate;
+import org.junit.Test;
+
+public class GameFilterTest {
+  private static final URI NYY_AT_CHW_2009 =
+      URI.create("https://www.baseball-reference.com/boxes/CHA/CHA200908020.shtml");
+  private static final URI KCR_AT_BOS_2018 =
+      URI.create("https://www.baseball-reference.com/boxes/BOS/BOS201805020.shtml");
+
+  @Test
+  public void matches_uriByDateRange() {
+    GameFilter filter =
+        new GameFilter(
+            LocalDate.of(2009, 8, 2),
+            LocalDate.of(2009, 8, 2),
+            ImmutableSet.of(),
+            ImmutableSet.of(),
+            ImmutableSet.of());
+
+    assertThat(filter.matches(NYY_AT_CHW_2009)).isTrue();
+    assertThat(filter.matches(KCR_AT_BOS_2018)).isFalse();
+  }
+
+  @Test
+  public void matches_uriBySeasonAndHomeTeam() {
+    GameFilter filter =
+        new GameFilter(
+            null, null, ImmutableSet.of(2009, 2018), ImmutableSet.of("bos"), ImmutableSet.of());
+
+    assertThat(filter.matches(NYY_AT_CHW_2009)).isFalse();
+    assertThat(filter.matches(KCR_AT_BOS_2018)).isTrue();
+  }
+
+  @Test
+  public void matches_letsThroughUrisThatAreNotBoxscores() {
+    GameFilter filter =
+        new GameFilter(null, null, ImmutableSet.of(2018), ImmutableSet.of(), ImmutableSet.of());
+
+    assertThat(filter.matches(URI.create("https://example.com/not-a-boxscore"))).isTrue();
+  }
+
+  @Test
+  public void matches_matchupByAwayTeam() {
+    GameFilter filter =
+        new GameFilter(null, null, ImmutableSet.of(), ImmutableSet.of(), ImmutableSet.of("NYY"));
+
+    assertThat(filter.matches(NYY_AT_CHW_2009)).isTrue();
+    assertThat(filter.matches(new Matchup(LocalDate.of(2009, 8, 2), "NYY", "CHW"))).isTrue();
+    assertThat(filter.matches(new Matchup(LocalDate.of(2018, 5, 2), "KCR", "BOS"))).isFalse();
+  }
+}
@@ -0,0 +1,37 @@
+package com.github.baseballtrip;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+  @Test
+  public void percentileNanos_isWithinBucketPrecision() {
+    LatencyHistogram histogram = new LatencyHistogram();
+
+    for (int millis = 1; millis <= 1000; millis++) {
+      histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    assertThat(histogram.count()).isEqualTo(1000);
+    assertThat((double) histogram.percentileNanos(50))
+        .isWithin(TimeUnit.MILLISECONDS.toNanos(500) * .035)
+        .of(TimeUnit.MILLISECONDS.toNanos(500));
+    assertThat((double) histogram.percentileNanos(99))
+        .isWithin(TimeUnit.MILLISECONDS.toNanos(990) * .035)
+        .of(TimeUnit.MILLISECONDS.toNanos(990));
+    assertThat(histogram.percentileNanos(100)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(1000));
+  }
+
+  @Test
+  public void percentileNanos_isExactForSmallValues() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(3);
+    histogram.record(7);
+
+    assertThat(histogram.percentileNanos(50)).isEqualTo(3);
+    assertThat(histogram.percentileNanos(95)).isEqualTo(7);
+    assertThat(new LatencyHistogram().percentileNanos(50)).isEqualTo(0);
+  }
+}
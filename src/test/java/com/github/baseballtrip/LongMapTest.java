@@ -0,0 +1,33 @@
+package com.github.baseballtrip;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.List;
+import org.junit.Test;
+
+public class LongMapTest {
+  private final LongMap<String> map = new LongMap<>();
+
+  @Test
+  public void get_findsEveryKeyAddedAcrossResizes() {
+    for (long key = 0; key < 1000; key++) {
+      map.put(key << 32 | key, "value " + key);
+    }
+
+    assertThat(map.size()).isEqualTo(1000);
+    assertThat(map.get(7L << 32 | 7)).isEqualTo("value 7");
+    assertThat(map.get(999L << 32 | 999)).isEqualTo("value 999");
+    assertThat(map.get(7)).isNull();
+    assertThat(map.get(Long.MIN_VALUE)).isNull();
+  }
+
+  @Test
+  public void values_seesAdditionsInOrder() {
+    List<String> values = map.values();
+    map.put(42, "first");
+    map.put(-1, "second");
+    map.put(0, "third");
+
+    assertThat(values).containsExactly("first", "second", "third").inOrder();
+  }
+}
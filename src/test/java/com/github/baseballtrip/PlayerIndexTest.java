@@ -0,0 +1,104 @@
+package com.github.baseballtrip;
+
+import static com.github.baseballtrip.StatSchema.BATTING;
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableTable;
+import java.net.URI;
+import java.time.LocalDate;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PlayerIndexTest {
+  private final PlayerIndex index = new PlayerIndex(new RollupAggregator());
+
+  @Before
+  public void setUp() {
+    index.add(
+        boxscoreUri("NYA201705010"),
+        game(
+            LocalDate.of(2017, 5, 1),
+            hits("jeterde01", "Derek Jeter", "NYY", 2),
+            hits("ortizda01", "David Ortiz", "BOS", 1)));
+    index.add(
+        boxscoreUri("NYA201805010"),
+        game(
+            LocalDate.of(2018, 5, 1),
+            hits("jeterde01", "Derek Jeter", "NYY", 1),
+            hits("judgeaa01", "Aaron Judge", "NYY", 3)));
+  }
+
+  @Test
+  public void find_withoutCriteriaListsEveryPlayerInOrderSeen() {
+    assertThat(ids(index.find(null, null, null, null)))
+        .containsExactly("jeterde01", "ortizda01", "judgeaa01")
+        .inOrder();
+    assertThat(index.size()).isEqualTo(3);
+  }
+
+  @Test
+  public void find_matchesNamePrefixOfAnyWord() {
+    assertThat(ids(index.find(null, "jud", null, null))).containsExactly("judgeaa01");
+    assertThat(ids(index.find(null, "Derek J", null, null))).containsExactly("jeterde01");
+    assertThat(ids(index.find(null, "erek", null, null))).isEmpty();
+  }
+
+  @Test
+  public void find_intersectsCriteria() {
+    assertThat(ids(index.find(null, null, "nyy", 2018)))
+        .containsExactly("jeterde01", "judgeaa01")
+        .inOrder();
+    assertThat(ids(index.find(null, null, "BOS", 2018))).isEmpty();
+    assertThat(ids(index.find("ortizda01", "david", "BOS", 2017))).containsExactly("ortizda01");
+  }
+
+  @Test
+  public void add_updatesTotalsOfPlayersInGame() {
+    PlayerIndex.PlayerSummary jeter = index.find("jeterde01", null, null, null).get(0);
+
+    assertThat(jeter.playerName).isEqualTo("Derek Jeter");
+    assertThat(jeter.teams).containsExactly("NYY");
+    assertThat(jeter.seasons).containsExactly(2017, 2018).inOrder();
+    assertThat(jeter.stats.get(BATTING, "H")).isEqualTo(3f);
+
+    index.add(
+        boxscoreUri("NYA201905010"),
+        game(LocalDate.of(2019, 5, 1), hits("jeterde01", "Derek Jeter", "NYY", 4)));
+
+    assertThat(index.find("jeterde01", null, null, null).get(0).stats.get(BATTING, "H"))
+        .isEqualTo(7f);
+    assertThat(ids(index.find(null, null, null, 2019))).containsExactly("jeterde01");
+  }
+
+  @Test
+  public void add_skipsGamesAlreadyAdded() {
+    boolean added =
+        index.add(
+            boxscoreUri("NYA201805010"),
+            game(LocalDate.of(2018, 5, 1), hits("jeterde01", "Derek Jeter", "NYY", 1)));
+
+    assertThat(added).isFalse();
+    assertThat(index.contains(boxscoreUri("NYA201805010"))).isTrue();
+    assertThat(index.games()).isEqualTo(2);
+    assertThat(index.find("jeterde01", null, null, null).get(0).stats.get(BATTING, "H"))
+        .isEqualTo(3f);
+  }
+
+  private static ImmutableList<String> ids(ImmutableList<PlayerIndex.PlayerSummary> players) {
+    return players.stream().map(p -> p.playerId).collect(ImmutableList.toImmutableList());
+  }
+
+  private static URI boxscoreUri(String game) {
+    return URI.create("https://www.baseball-reference.com/boxes/NYA/" + game + ".shtml");
+  }
+
+  private static Boxscore game(LocalDate date, PlayerStat... stats) {
+    return new Boxscore(new Matchup(date, "BOS", "NYY"), ImmutableList.copyOf(stats));
+  }
+
+  private static PlayerStat hits(String playerId, String name, String team, float hits) {
+    return new PlayerStat(
+        playerId, name, team, StatLine.fromTable(ImmutableTable.of(BATTING, "H", hits)));
+  }
+}
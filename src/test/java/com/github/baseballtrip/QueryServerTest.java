@@ -0,0 +1,182 @@
+package com.github.baseballtrip;
+
+import static com.github.baseballtrip.StatSchema.BATTING;
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableTable;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class QueryServerTest {
+  private final PlayerIndex index = new PlayerIndex(new RollupAggregator());
+
+  private final LinkedBlockingQueue<List<URI>> loaded = new LinkedBlockingQueue<>();
+
+  /** Loads games that have a sample boxscore, and fails the rest. */
+  private final QueryServer.Loader loader =
+      (uris, sink) -> {
+        for (URI uri : uris) {
+          if (uri.getPath().endsWith("/BOS201805020.shtml")) {
+            sink.accept(uri, SAMPLE_BOXSCORE);
+          } else {
+            sink.failed(uri, new IOException("Failed to load " + uri));
+          }
+        }
+
+        loaded.add(uris);
+      };
+
+  private final HttpClient client = HttpClient.newHttpClient();
+
+  private QueryServer server;
+
+  private static final URI CHW_GAME =
+      URI.create("https://www.baseball-reference.com/boxes/CHA/CHA200908020.shtml");
+
+  private static final URI NYY_GAME =
+      URI.create("https://www.baseball-reference.com/boxes/NYA/NYA201705010.shtml");
+
+  private static final URI BOS_GAME =
+      URI.create("https://www.baseball-reference.com/boxes/BOS/BOS201805020.shtml");
+
+  private static final Boxscore SAMPLE_BOXSCORE =
+      new Boxscore(
+          new Matchup(LocalDate.of(2018, 5, 2), "BOS", "NYY"),
+          ImmutableList.of(
+              new PlayerStat(
+                  "ortizda01",
+                  "David Ortiz",
+                  "BOS",
+                  StatLine.fromTable(ImmutableTable.of(BATTING, "H", 1f)))));
+
+  @Before
+  public void setUp() throws IOException {
+    index.add(
+        URI.create("https://www.baseball-reference.com/boxes/BOS/BOS201805010.shtml"),
+        new Boxscore(
+            new Matchup(LocalDate.of(2018, 5, 1), "BOS", "NYY"),
+            ImmutableList.of(
+                new PlayerStat(
+                    "jeterde01",
+                    "Derek \"The Captain\" Jeter",
+                    "NYY",
+                    StatLine.fromTable(ImmutableTable.of(BATTING, "H", 2f))))));
+    // takes games at any park but Yankee Stadium
+    server = new QueryServer(index, uri -> !uri.getPath().contains("/NYA/"), loader, 0);
+    server.start();
+  }
+
+  @After
+  public void tearDown() {
+    server.stop();
+  }
+
+  @Test
+  public void players_answersMatchingPlayersAsJson() throws Exception {
+    HttpResponse<String> response = get("/players?team=NYY&season=2018");
+
+    assertThat(response.statusCode()).isEqualTo(200);
+    assertThat(response.body()).contains("{\"id\": \"jeterde01\"");
+    assertThat(response.body()).contains("\"name\": \"Derek \\\"The Captain\\\" Jeter\"");
+    assertThat(response.body()).contains("\"teams\": [\"NYY\"], \"seasons\": [2018]");
+    assertThat(response.body()).contains("\"H\": 2.0");
+    assertThat(get("/players?season=2017").body()).isEqualTo("[\n]\n");
+  }
+
+  @Test
+  public void players_rejectsBadSeason() throws Exception {
+    assertThat(get("/players?season=last").statusCode()).isEqualTo(400);
+    assertThat(get("/players/jeterde01").statusCode()).isEqualTo(404);
+  }
+
+  @Test
+  public void boxscores_queuesPostedUrisToLoad() throws Exception {
+    HttpResponse<String> response = post("/boxscores", CHW_GAME + "\n\n" + BOS_GAME + "\n");
+
+    assertThat(response.statusCode()).isEqualTo(202);
+    assertThat(response.body())
+        .isEqualTo("{\"queued\": 2, \"alreadyLoaded\": 0, \"filteredOut\": 0}\n");
+    assertThat(loaded.poll(10, TimeUnit.SECONDS)).containsExactly(CHW_GAME, BOS_GAME).inOrder();
+    assertThat(get("/players?id=ortizda01").body()).contains("\"name\": \"David Ortiz\"");
+  }
+
+  @Test
+  public void boxscores_reportsFailuresAndSkipsGamesAlreadyLoaded() throws Exception {
+    post("/boxscores", CHW_GAME + "\n" + BOS_GAME);
+    loaded.poll(10, TimeUnit.SECONDS);
+
+    assertThat(statusOnceLoaded())
+        .isEqualTo(
+            "{\"games\": 2, \"pending\": 0, \"failed\": [\n"
+                + "  {\"uri\": \""
+                + CHW_GAME
+                + "\", \"error\": \"java.io.IOException: Failed to load "
+                + CHW_GAME
+                + "\"}\n]}\n");
+
+    HttpResponse<String> retry = post("/boxscores", CHW_GAME + "\n" + BOS_GAME);
+
+    assertThat(retry.body())
+        .isEqualTo("{\"queued\": 1, \"alreadyLoaded\": 1, \"filteredOut\": 0}\n");
+    assertThat(loaded.poll(10, TimeUnit.SECONDS)).containsExactly(CHW_GAME);
+    assertThat(index.games()).isEqualTo(2);
+  }
+
+  @Test
+  public void boxscores_skipsGamesTheFilterRejects() throws Exception {
+    HttpResponse<String> response = post("/boxscores", NYY_GAME + "\n" + BOS_GAME);
+
+    assertThat(response.body())
+        .isEqualTo("{\"queued\": 1, \"alreadyLoaded\": 0, \"filteredOut\": 1}\n");
+    assertThat(loaded.poll(10, TimeUnit.SECONDS)).containsExactly(BOS_GAME);
+  }
+
+  @Test
+  public void boxscores_rejectsUrlsOfOtherPages() throws Exception {
+    assertThat(post("/boxscores", CHW_GAME + "\nBOS201805020.shtml").statusCode()).isEqualTo(400);
+    assertThat(post("/boxscores", "ftp://example.com/boxes/BOS201805020.shtml").statusCode())
+        .isEqualTo(400);
+    assertThat(post("/boxscores", "https://example.com/players/o/ortizda01.shtml").statusCode())
+        .isEqualTo(400);
+    assertThat(post("/boxscores/now", BOS_GAME.toString()).statusCode()).isEqualTo(404);
+    assertThat(loaded).isEmpty();
+  }
+
+  private HttpResponse<String> post(String path, String body) throws Exception {
+    return client.send(
+        HttpRequest.newBuilder(uri(path)).POST(HttpRequest.BodyPublishers.ofString(body)).build(),
+        HttpResponse.BodyHandlers.ofString());
+  }
+
+  /** The load status, once the batch the loader finished has stopped counting as pending. */
+  private String statusOnceLoaded() throws Exception {
+    String status = get("/boxscores").body();
+
+    for (int i = 0; i < 100 && !status.contains("\"pending\": 0"); i++) {
+      Thread.sleep(50);
+      status = get("/boxscores").body();
+    }
+
+    return status;
+  }
+
+  private HttpResponse<String> get(String path) throws Exception {
+    return client.send(
+        HttpRequest.newBuilder(uri(path)).build(), HttpResponse.BodyHandlers.ofString());
+  }
+
+  private URI uri(String path) {
+    return URI.create("http://localhost:" + server.port() + path);
+  }
+}
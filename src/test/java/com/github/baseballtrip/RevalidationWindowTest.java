@@ -0,0 +1,41 @@
+package com.github.baseballtrip;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.net.URI;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import org.junit.Test;
+
+public class RevalidationWindowTest {
+  private static final Clock JULY_6_2019 =
+      Clock.fixed(Instant.parse("2019-07-06T12:00:00Z"), ZoneOffset.UTC);
+
+  private static final URI JULY_4_2019 =
+      URI.create("https://www.baseball-reference.com/boxes/NYA/NYA201907040.shtml");
+
+  @Test
+  public void test_matchesGamesWithinWindow() {
+    assertThat(new RevalidationWindow(3, JULY_6_2019).test(JULY_4_2019)).isTrue();
+  }
+
+  @Test
+  public void test_skipsOlderGames() {
+    assertThat(new RevalidationWindow(2, JULY_6_2019).test(JULY_4_2019)).isFalse();
+  }
+
+  @Test
+  public void test_zeroDaysNeverRevalidates() {
+    URI today = URI.create("https://www.baseball-reference.com/boxes/NYA/NYA201907060.shtml");
+
+    assertThat(new RevalidationWindow(0, JULY_6_2019).test(today)).isFalse();
+  }
+
+  @Test
+  public void test_skipsUrisWithoutGameDate() {
+    URI other = URI.create("https://www.baseball-reference.com/players/j/jeterde01.shtml");
+
+    assertThat(new RevalidationWindow(3, JULY_6_2019).test(other)).isFalse();
+  }
+}
@@ -0,0 +1,124 @@
+package com.github.baseballtrip;
+
+import static com.github.baseballtrip.StatSchema.BATTING;
+import static com.github.baseballtrip.StatSchema.PITCHING;
+import static com.github.baseballtrip.StatSchema.index;
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableTable;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+
+public class RollupAggregatorTest {
+  private final RollupAggregator aggregator = new RollupAggregator(EnumSet.allOf(Rollup.class));
+
+  @Test
+  public void add_totalsEveryRollupInOnePass() {
+    aggregator.add(game(LocalDate.of(2017, 5, 1), "NYY", "BOS", hits("jeterde01", "NYY", 2)));
+    aggregator.add(game(LocalDate.of(2018, 5, 1), "BOS", "NYY", hits("jeterde01", "NYY", 1)));
+    aggregator.add(game(LocalDate.of(2018, 6, 1), "NYY", "BOS", hits("jeterde01", "BOS", 3)));
+
+    assertThat(totals(Rollup.PLAYER)).containsExactly("Derek Jeter=6.0");
+    assertThat(totals(Rollup.PLAYER_SEASON))
+        .containsExactly("Derek Jeter,2017=2.0", "Derek Jeter,2018=4.0")
+        .inOrder();
+    assertThat(totals(Rollup.PLAYER_TEAM))
+        .containsExactly("Derek Jeter,NYY=3.0", "Derek Jeter,BOS=3.0")
+        .inOrder();
+    assertThat(totals(Rollup.TEAM_SEASON))
+        .containsExactly("NYY,2017=2.0", "NYY,2018=1.0", "BOS,2018=3.0")
+        .inOrder();
+    assertThat(totals(Rollup.VENUE)).containsExactly("BOS=5.0", "NYY=1.0").inOrder();
+  }
+
+  @Test
+  public void add_skipsTeamRollupsWhenTeamUnknown() {
+    aggregator.add(game(LocalDate.of(2018, 5, 1), "BOS", "NYY", hits("jeterde01", null, 1)));
+
+    assertThat(totals(Rollup.PLAYER)).containsExactly("Derek Jeter=1.0");
+    assertThat(totals(Rollup.PLAYER_TEAM)).isEmpty();
+    assertThat(totals(Rollup.TEAM_SEASON)).isEmpty();
+  }
+
+  @Test
+  public void addAll_matchesSequentialTotalsAndOrder() {
+    Random random = new Random(7);
+    ArrayList<Boxscore> boxscores = new ArrayList<>();
+
+    for (int i = 0; i < 500; i++) {
+      ArrayList<PlayerStat> stats = new ArrayList<>();
+
+      for (int j = 0; j < 10; j++) {
+        String team = j < 5 ? "T" + (i % 7) : "T" + (i % 5);
+        stats.add(
+            new PlayerStat(
+                "p" + random.nextInt(300),
+                "Player",
+                team,
+                StatLine.fromTable(
+                    ImmutableTable.<String, String, Float>builder()
+                        .put(BATTING, "AB", (float) random.nextInt(6))
+                        .put(BATTING, "H", (float) random.nextInt(3))
+                        .put(PITCHING, "IP", random.nextInt(20) / 3f)
+                        .put(PITCHING, "ER", (float) random.nextInt(4))
+                        .build())));
+      }
+
+      boxscores.add(
+          new Boxscore(
+              new Matchup(LocalDate.of(2000 + i % 3, 5, 1), "T" + (i % 5), "T" + (i % 7)),
+              ImmutableList.copyOf(stats)));
+    }
+
+    RollupAggregator parallel = new RollupAggregator(EnumSet.allOf(Rollup.class));
+    ForkJoinPool pool = new ForkJoinPool(4);
+    // adds to groups seen before as well as new ones
+    parallel.addAll(boxscores.subList(0, 100), pool);
+    parallel.addAll(boxscores.subList(100, boxscores.size()), pool);
+
+    for (Boxscore boxscore : boxscores) {
+      aggregator.add(boxscore);
+    }
+
+    BaseballCsvFormatter formatter = new BaseballCsvFormatter();
+
+    for (Rollup rollup : Rollup.values()) {
+      assertThat(formatter.toCsvCells(rollup, parallel, pool))
+          .isEqualTo(formatter.toCsvCells(rollup, aggregator));
+    }
+
+    pool.shutdown();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void groups_rejectsRollupsNotAggregated() {
+    new RollupAggregator().groups(Rollup.VENUE);
+  }
+
+  private ImmutableList<String> totals(Rollup rollup) {
+    return aggregator.groups(rollup).stream()
+        .map(
+            group ->
+                String.join(",", group.labels)
+                    + "="
+                    + group.sumsWithDerivedStats().get(index(BATTING, "H")))
+        .collect(ImmutableList.toImmutableList());
+  }
+
+  private static Boxscore game(LocalDate date, String away, String home, PlayerStat stat) {
+    return new Boxscore(new Matchup(date, away, home), ImmutableList.of(stat));
+  }
+
+  private static PlayerStat hits(String playerId, String team, float hits) {
+    return new PlayerStat(
+        playerId,
+        "Derek Jeter",
+        team,
+        StatLine.fromTable(ImmutableTable.of(BATTING, "H", hits)));
+  }
+}
@@ -0,0 +1,68 @@
+package com.github.baseballtrip;
+
+import static com.google.common.io.Resources.getResource;
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.io.Resources;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SavedPageFetcherTest {
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private static final URI YANKS_SOX =
+      URI.create("https://www.baseball-reference.com/boxes/CHA/CHA200908020.shtml");
+
+  private static final URI ROYALS_SOX =
+      URI.create("https://www.baseball-reference.com/boxes/BOS/BOS201805020.shtml");
+
+  @Test
+  public void open_indexesPagesUnderDirectoryInGameOrder() throws IOException {
+    Path dir = temporaryFolder.newFolder().toPath();
+    Files.createDirectories(dir.resolve("2018"));
+    Files.write(dir.resolve("2018/BOS201805020.shtml"), fixture("BOS201805020.shtml"));
+    Files.write(dir.resolve("CHA200908020.shtml"), fixture("CHA200908020.shtml"));
+    Files.writeString(dir.resolve("notes.txt"), "not a boxscore");
+
+    try (SavedPageFetcher fetcher = SavedPageFetcher.open(dir)) {
+      assertThat(fetcher.boxscoreUris()).containsExactly(YANKS_SOX, ROYALS_SOX).inOrder();
+      assertThat(new BaseballReferenceScraper(fetcher).parseBoxscore(YANKS_SOX).matchup.away)
+          .isEqualTo("NYY");
+    }
+  }
+
+  @Test
+  public void open_readsPagesFromZip() throws IOException {
+    Path zip = temporaryFolder.getRoot().toPath().resolve("pages.zip");
+
+    try (ZipOutputStream output = new ZipOutputStream(Files.newOutputStream(zip))) {
+      output.putNextEntry(new ZipEntry("boxes/CHA200908020.shtml"));
+      output.write(fixture("CHA200908020.shtml"));
+      output.closeEntry();
+    }
+
+    try (SavedPageFetcher fetcher = SavedPageFetcher.open(zip)) {
+      assertThat(fetcher.boxscoreUris()).containsExactly(YANKS_SOX);
+      assertThat(new BaseballReferenceScraper(fetcher).parseBoxscore(YANKS_SOX).stats)
+          .hasSize(41);
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void fetch_failsForPagesNotSaved() throws IOException {
+    try (SavedPageFetcher fetcher = SavedPageFetcher.open(temporaryFolder.getRoot().toPath())) {
+      fetcher.fetch(YANKS_SOX);
+    }
+  }
+
+  private static byte[] fixture(String name) throws IOException {
+    return Resources.toByteArray(getResource(name));
+  }
+}
@@ -0,0 +1,35 @@
+package com.github.baseballtrip;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SharedFetchBudgetTest {
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void acquire_spacesRequestsAcrossInstances() throws Exception {
+    Path stateFile = temporaryFolder.getRoot().toPath().resolve("budget");
+    SharedFetchBudget first = new SharedFetchBudget(stateFile, 5);
+    SharedFetchBudget second = new SharedFetchBudget(stateFile, 5);
+
+    long start = System.nanoTime();
+    first.acquire();
+    second.acquire();
+    first.acquire();
+
+    assertThat(Duration.ofNanos(System.nanoTime() - start)).isAtLeast(Duration.ofMillis(390));
+  }
+
+  @Test
+  public void pause_holdsOffOtherInstances() throws Exception {
+    Path stateFile = temporaryFolder.getRoot().toPath().resolve("budget");
+    new SharedFetchBudget(stateFile, 100).pause(Duration.ofMillis(300));
+
+    assertThat(new SharedFetchBudget(stateFile, 100).acquire()).isAtLeast(.2);
+  }
+}
@@ -0,0 +1,110 @@
+package com.github.baseballtrip;
+
+import static com.github.baseballtrip.StatSchema.BATTING;
+import static com.github.baseballtrip.StatSchema.PITCHING;
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableTable;
+import com.google.common.collect.Iterators;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SpillingAggregatorTest {
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final EnumSet<Rollup> rollups = EnumSet.allOf(Rollup.class);
+
+  @Test
+  public void rows_matchInMemoryTotalsWhenSpilled() throws IOException {
+    assertMatchesInMemory(randomGames(300), 64 * 1024, true);
+  }
+
+  @Test
+  public void rows_matchInMemoryTotalsWithinBudget() throws IOException {
+    assertMatchesInMemory(randomGames(300), Long.MAX_VALUE, false);
+  }
+
+  @Test
+  public void close_deletesSpilledFiles() throws IOException {
+    Path tempDir = temporaryFolder.newFolder().toPath();
+
+    try (SpillingAggregator aggregator = new SpillingAggregator(rollups, tempDir, 0)) {
+      for (Boxscore boxscore : randomGames(10)) {
+        aggregator.add(boxscore);
+      }
+
+      aggregator.finish();
+      // leaves a run open, as a failed print would
+      aggregator.rows(Rollup.PLAYER, null).next();
+    }
+
+    try (Stream<Path> files = Files.list(tempDir)) {
+      assertThat(files.count()).isEqualTo(0);
+    }
+  }
+
+  private void assertMatchesInMemory(List<Boxscore> boxscores, long maxBytes, boolean spills)
+      throws IOException {
+    RollupAggregator expected = new RollupAggregator(rollups);
+    BaseballCsvFormatter formatter = new BaseballCsvFormatter();
+
+    try (SpillingAggregator aggregator =
+        new SpillingAggregator(rollups, temporaryFolder.getRoot().toPath(), maxBytes)) {
+      for (Boxscore boxscore : boxscores) {
+        aggregator.add(boxscore);
+        expected.add(boxscore);
+      }
+
+      aggregator.finish();
+      assertThat(aggregator.spilled()).isEqualTo(spills);
+
+      for (Rollup rollup : rollups) {
+        assertThat(Iterators.toArray(aggregator.rows(rollup, null), String[].class))
+            .isEqualTo(Iterators.toArray(formatter.toCsvRows(rollup, expected), String[].class));
+      }
+    }
+  }
+
+  private static List<Boxscore> randomGames(int count) {
+    Random random = new Random(11);
+    ArrayList<Boxscore> boxscores = new ArrayList<>();
+
+    for (int i = 0; i < count; i++) {
+      ArrayList<PlayerStat> stats = new ArrayList<>();
+
+      for (int j = 0; j < 10; j++) {
+        int player = random.nextInt(400);
+        stats.add(
+            new PlayerStat(
+                "p" + player,
+                "Player " + player,
+                j < 5 ? "T" + (i % 7) : "T" + (i % 5),
+                StatLine.fromTable(
+                    ImmutableTable.<String, String, Float>builder()
+                        .put(BATTING, "AB", (float) random.nextInt(6))
+                        .put(BATTING, "H", (float) random.nextInt(3))
+                        .put(PITCHING, "IP", random.nextInt(20) / 3f)
+                        .put(PITCHING, "ER", (float) random.nextInt(4))
+                        .build())));
+      }
+
+      boxscores.add(
+          new Boxscore(
+              new Matchup(LocalDate.of(2000 + i % 3, 5, 1), "T" + (i % 5), "T" + (i % 7)),
+              ImmutableList.copyOf(stats)));
+    }
+
+    return boxscores;
+  }
+}
@@ -0,0 +1,53 @@
+package com.github.baseballtrip;
+
+import static com.github.baseballtrip.StatSchema.BATTING;
+import static com.github.baseballtrip.StatSchema.PITCHING;
+import static com.github.baseballtrip.StatSchema.index;
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableTable;
+import org.junit.Test;
+
+public class StatLineTest {
+  @Test
+  public void addAll_sumsRecordedStatsOnly() {
+    StatLine sum = StatLine.fromTable(ImmutableTable.of(BATTING, "AB", 4f));
+    sum.addAll(StatLine.fromTable(ImmutableTable.of(BATTING, "AB", 3f)));
+    sum.addAll(StatLine.fromTable(ImmutableTable.of(BATTING, "2B", 1f)));
+
+    assertThat(sum.get(index(BATTING, "AB"))).isEqualTo(7f);
+    assertThat(sum.get(index(BATTING, "2B"))).isEqualTo(1f);
+    assertThat(sum.has(index(BATTING, "3B"))).isFalse();
+    assertThat(sum.has(index(PITCHING, "H"))).isFalse();
+  }
+
+  @Test
+  public void addDerivedStats_skipsGroupsWithoutPlayingTime() {
+    StatLine line =
+        StatLine.fromTable(
+            ImmutableTable.<String, String, Float>builder()
+                .put(BATTING, "AB", 4f)
+                .put(BATTING, "H", 2f)
+                .put(BATTING, "HR", 1f)
+                .put(PITCHING, "IP", 0f)
+                .build());
+    line.addDerivedStats();
+
+    assertThat(line.get(index(BATTING, "AVG"))).isEqualTo(.5f);
+    assertThat(line.get(index(BATTING, "TB"))).isEqualTo(5f);
+    assertThat(line.get(index(BATTING, "SLG"))).isEqualTo(1.25f);
+    assertThat(line.has(index(PITCHING, "ERA"))).isFalse();
+  }
+
+  @Test
+  public void toTable_dropsStatsOutsideTheSchema() {
+    StatLine line =
+        StatLine.fromTable(
+            ImmutableTable.<String, String, Float>builder()
+                .put(BATTING, "AB", 4f)
+                .put(BATTING, "Unknown", 1f)
+                .build());
+
+    assertThat(line.toTable()).isEqualTo(ImmutableTable.of(BATTING, "AB", 4f));
+  }
+}
@@ -0,0 +1,39 @@
+package com.github.baseballtrip;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableTable;
+import org.junit.Test;
+
+public class SymbolTableTest {
+  private final SymbolTable symbols = new SymbolTable();
+
+  @Test
+  public void intern_returnsOneInstancePerValue() {
+    String first = symbols.intern(new String("jeterde01"));
+
+    assertThat(symbols.intern(new String("jeterde01"))).isSameInstanceAs(first);
+    assertThat(symbols.intern(null)).isNull();
+  }
+
+  @Test
+  public void handle_numbersSymbolsDenselyInFirstSeenOrder() {
+    assertThat(symbols.handle("jeterde01")).isEqualTo(0);
+    assertThat(symbols.handle("NYY")).isEqualTo(1);
+    assertThat(symbols.handle("jeterde01")).isEqualTo(0);
+  }
+
+  @Test
+  public void playerStat_sharesInternedStrings() {
+    PlayerStat first =
+        new PlayerStat(new String("jeterde01"), new String("Derek Jeter"), "NYY", new StatLine());
+    PlayerStat second =
+        new PlayerStat(
+            new String("jeterde01"), new String("Derek Jeter"), ImmutableTable.of());
+
+    assertThat(second.playerId).isSameInstanceAs(first.playerId);
+    assertThat(second.playerName).isSameInstanceAs(first.playerName);
+    assertThat(second.playerHandle).isEqualTo(first.playerHandle);
+    assertThat(second.teamHandle).isEqualTo(-1);
+  }
+}